@@ -13,8 +13,6 @@ import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.EntityBlock;
 import net.minecraft.world.level.block.RenderShape;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.entity.BlockEntityTicker;
-import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.BlockHitResult;
@@ -59,17 +57,16 @@ public class MachineBlock extends Block implements EntityBlock {
         return InteractionResult.PASS;
     }
 
-    // BE 生成
+    // 隣接ブロック（タンク設置・撤去など）が変わったら、眠っている機械を起こす
     @Override
-    public BlockEntity newBlockEntity(BlockPos pos, BlockState state) {
-        return new MachineBlockEntity(pos, state, kind);
+    public void neighborChanged(BlockState state, Level level, BlockPos pos, Block block, BlockPos fromPos, boolean isMoving) {
+        super.neighborChanged(state, level, pos, block, fromPos, isMoving);
+        if (!level.isClientSide && level.getBlockEntity(pos) instanceof MachineBlockEntity m) m.wake();
     }
 
-    // サーバーTickを回す
+    // BE 生成（サーバTickは TickDispatcher が回すので getTicker は返さない）
     @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(Level level, BlockState state, BlockEntityType<T> type) {
-        return level.isClientSide ? null : (lvl, p, s, be) -> {
-            if (be instanceof MachineBlockEntity m) m.serverTick();
-        };
+    public BlockEntity newBlockEntity(BlockPos pos, BlockState state) {
+        return MachineBlockEntity.create(pos, state, kind);
     }
 }
\ No newline at end of file
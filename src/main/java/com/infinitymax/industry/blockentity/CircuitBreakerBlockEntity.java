@@ -1,5 +1,8 @@
 package com.infinitymax.industry.blockentity;
 
+import com.infinitymax.industry.network.ISwitchableEdge;
+import com.infinitymax.industry.network.SmartNetworkManager;
+import com.infinitymax.industry.tick.IServerTickable;
 import com.infinitymax.industry.tick.TickDispatcher;
 import com.infinitymax.industry.energy.IElectricNode;
 import net.minecraft.core.BlockPos;
@@ -9,50 +12,92 @@ import net.minecraft.world.level.block.state.BlockState;
 
 /**
  * ブレーカー（定格を越える電流でトリップ）
+ * - 開閉する辺（ISwitchableEdge）。閉じている間は両隣をつなぐだけの端点で、電流を作りも消費もしない
+ * - ネットワークが毎 tick 通過電流を onThroughFlow で知らせる。定格を越えたら開き、markElectricSwitched で
+ *   ネットワークに知らせる。その tick の配分はネットワークが側ごとに配り直し（切れた側へは流さない）、
+ *   次 tick の再構築相で切れた側だけが切り出される
  */
-public class CircuitBreakerBlockEntity extends BlockEntity implements IElectricNode {
+public class CircuitBreakerBlockEntity extends BlockEntity implements IElectricNode, ISwitchableEdge, IServerTickable {
 
     public static net.minecraft.world.level.block.entity.BlockEntityType<CircuitBreakerBlockEntity> TYPE;
 
     private double ratedA = 200.0;
     private boolean tripped = false;
+    private int tripCount = 0;
 
     public CircuitBreakerBlockEntity(BlockPos pos, BlockState state) {
         super(TYPE, pos, state);
-        TickDispatcher.register(this);
     }
 
-    @Override public void setRemoved() { super.setRemoved(); TickDispatcher.unregister(this); }
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        TickDispatcher.unregister(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        TickDispatcher.register(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
 
     @Override public void serverTick() {
         if (level == null || level.isClientSide) return;
-        // Nothing active; ElectricNetwork must call pushPullCurrent and we can trip based on requestedCurrent
+        // Nothing active; ElectricNetwork reports the through-current via onThroughFlow
     }
 
     @Override public double getVoltageV() { return 0.0; }
     @Override public double getInternalResistanceOhm() { return tripped ? 1e9 : 0.001; } // open=very high R
-    @Override public double getMaxIntakeA() { return tripped ? 0.0 : ratedA; }
-    @Override public double getMaxOutputA() { return tripped ? 0.0 : ratedA; }
+    // pass-through terminal: neither a load nor a source
+    @Override public double getMaxIntakeA() { return 0.0; }
+    @Override public double getMaxOutputA() { return 0.0; }
+    // capacities are constant; open / close goes through markElectricSwitched
+    @Override public boolean reportsCapacityChanges() { return true; }
 
     @Override
     public double pushPullCurrent(net.minecraft.world.level.Level level, BlockPos pos, double requestedVoltageV, double requestedCurrentA) {
-        double reqA = Math.abs(requestedCurrentA);
-        if (reqA > ratedA && !tripped) {
-            tripped = true;
-            // optionally: spawn particles / play sound / log
-            System.out.println("[Breaker] tripped at " + worldPosition + " requestedA=" + reqA);
-            return 0.0;
-        }
-        // pass-through
-        return requestedCurrentA;
+        return tripped ? 0.0 : requestedCurrentA;
     }
 
-    @Override public void markDirtyGraph() {}
+    // ===== ISwitchableEdge =====
+    @Override public boolean isClosed() { return !tripped; }
+
+    @Override
+    public void onThroughFlow(net.minecraft.world.level.Level level, double currentA) {
+        if (tripped || currentA <= ratedA) return;
+        tripped = true;
+        tripCount++;
+        setChanged();
+        // optionally: spawn particles / play sound
+        SmartNetworkManager.get().markElectricSwitched(level, worldPosition);
+    }
+
+    public boolean isTripped() { return tripped; }
+
+    public int getTripCount() { return tripCount; }
+
+    @Override
+    public void markDirtyGraph() {
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
 
     @Override
     public void load(CompoundTag tag) { super.load(tag); tripped = tag.getBoolean("tripped"); }
     @Override
     public void saveAdditional(CompoundTag tag) { super.saveAdditional(tag); tag.putBoolean("tripped", tripped); }
 
-    public void resetBreaker() { tripped = false; markDirty(); }
+    public void resetBreaker() {
+        if (!tripped) return;
+        tripped = false;
+        setChanged();
+        if (level != null && !level.isClientSide) SmartNetworkManager.get().markElectricSwitched(level, worldPosition);
+    }
 }
\ No newline at end of file
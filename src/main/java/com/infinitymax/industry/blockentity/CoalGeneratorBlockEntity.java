@@ -1,7 +1,11 @@
 package com.infinitymax.industry.blockentity;
 
+import com.infinitymax.industry.network.SmartNetworkManager;
+import com.infinitymax.industry.tick.IServerTickable;
 import com.infinitymax.industry.tick.TickDispatcher;
 import com.infinitymax.industry.energy.IElectricNode;
+import com.infinitymax.industry.energy.PowerPriority;
+import com.infinitymax.industry.energy.PowerUnits;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.item.ItemStack;
@@ -14,8 +18,10 @@ import net.minecraft.world.level.block.state.BlockState;
  * 簡易石炭発電：燃料(石炭/木炭)を消費してJouleを生産する BE
  * - Inventory: slot0 = fuel
  * - 出力は ElectricNetwork を通じて配電される（pushPullCurrent が呼ばれる想定）
+ * - 給電の段（PowerPriority）は燃料を焚く電源の NORMAL が既定。非常用にするなら DUMP（最後に使う）へ。
+ *   setPowerPriority で変えられ、NBT に保存する
  */
-public class CoalGeneratorBlockEntity extends BlockEntity implements IElectricNode {
+public class CoalGeneratorBlockEntity extends BlockEntity implements IElectricNode, IServerTickable {
 
     public static BlockEntityType<CoalGeneratorBlockEntity> TYPE;
 
@@ -26,18 +32,33 @@ public class CoalGeneratorBlockEntity extends BlockEntity implements IElectricNo
     private double outputVoltage = 240.0;
     private double maxOutputA = 200.0;
     private double internalR = 0.1;
+    private PowerPriority powerPriority = PowerPriority.NORMAL;
+    // cap last reported to the network (NaN = not yet reported)
+    private double reportedOutputA = Double.NaN;
 
     public CoalGeneratorBlockEntity(BlockPos pos, BlockState state) {
         super(TYPE, pos, state);
-        TickDispatcher.register(this);
     }
 
     @Override
     public void setRemoved() {
         super.setRemoved();
         TickDispatcher.unregister(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        TickDispatcher.register(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
     }
 
+    @Override
     public void serverTick() {
         if (level == null || level.isClientSide) return;
 
@@ -54,6 +75,7 @@ public class CoalGeneratorBlockEntity extends BlockEntity implements IElectricNo
             // produce Joules per tick
             double produceJ = 240.0 * 10.0 / 20.0; // 240V * 10A => 2400W => 120J/tick
             storedJ = Math.min(maxJ, storedJ + produceJ);
+            reportCapacity();
         }
 
         // try to supply network by being IElectricNode: ElectricNetwork.tick will call pushPullCurrent on us when distributing
@@ -63,7 +85,20 @@ public class CoalGeneratorBlockEntity extends BlockEntity implements IElectricNo
     @Override public double getVoltageV() { return outputVoltage; }
     @Override public double getInternalResistanceOhm() { return internalR; }
     @Override public double getMaxIntakeA() { return 0.0; } // not consumer
-    @Override public double getMaxOutputA() { return maxOutputA; }
+    /** 定格と、バッファ残量を 1 tick で出し切る電流の小さい方 */
+    @Override public double getMaxOutputA() { return Math.min(maxOutputA, storedJ * PowerUnits.TICK_PER_SECOND / outputVoltage); }
+    @Override public PowerPriority getPowerPriority() { return powerPriority; }
+    // 出力上限はバッファ残量で動くので、前回知らせた値から実際に動いたときだけ reportCapacity で知らせる
+    @Override public boolean reportsCapacityChanges() { return true; }
+
+    // 定格で頭打ちの間（残量が十分）は黙る。残量側で上限が動いたときだけネットワークへ知らせる
+    private void reportCapacity() {
+        double out = getMaxOutputA();
+        if (IElectricNode.capacityMoved(out, reportedOutputA)) {
+            reportedOutputA = out;
+            if (level != null && !level.isClientSide) SmartNetworkManager.get().markElectricCapacityChanged(level, worldPosition);
+        }
+    }
 
     @Override
     public double pushPullCurrent(net.minecraft.world.level.Level level, BlockPos pos, double requestedVoltageV, double requestedCurrentA) {
@@ -74,23 +109,39 @@ public class CoalGeneratorBlockEntity extends BlockEntity implements IElectricNo
         double neededJ = outputVoltage * can / 20.0;
         if (storedJ >= neededJ) {
             storedJ -= neededJ;
+            reportCapacity();
             return -can; // negative means we supplied A (per ElectricNetwork convention earlier)
         } else {
             double possibleA = (storedJ * 20.0) / outputVoltage;
             double supplied = Math.min(possibleA, can);
             double consumedJ = outputVoltage * supplied / 20.0;
             storedJ -= consumedJ;
+            reportCapacity();
             return -supplied;
         }
     }
 
-    @Override public void markDirtyGraph() {}
+    /** 給電の段を変える（保存され、所属ネットワークは次の tick から新しい段で使う） */
+    public void setPowerPriority(PowerPriority priority) {
+        if (priority == null || priority == powerPriority) return;
+        powerPriority = priority;
+        setChanged();
+        if (level != null && !level.isClientSide) SmartNetworkManager.get().markElectricCapacityChanged(level, worldPosition);
+    }
+
+    @Override
+    public void markDirtyGraph() {
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
 
     @Override
     public void load(CompoundTag tag) {
         super.load(tag);
         storedJ = tag.getDouble("storedJ");
         fuelTime = tag.getInt("fuelTime");
+        powerPriority = PowerPriority.byName(tag.getString("powerPriority"), PowerPriority.NORMAL);
     }
 
     @Override
@@ -98,5 +149,6 @@ public class CoalGeneratorBlockEntity extends BlockEntity implements IElectricNo
         super.saveAdditional(tag);
         tag.putDouble("storedJ", storedJ);
         tag.putInt("fuelTime", fuelTime);
+        tag.putString("powerPriority", powerPriority.name());
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.infinitymax.industry.blockentity;
 import com.infinitymax.industry.block.MachineBlock;
 import com.infinitymax.industry.fluid.FluidTankBlockEntity;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.state.BlockState;
 
 /**
@@ -23,14 +24,16 @@ public class DistillationTowerBlockEntity extends MachineBlockEntity {
         if (level == null || level.isClientSide) return;
 
         // find any neighbor oil tank
-        for (var npos : com.infinitymax.industry.fluid.FluidNetwork.neighbors(worldPosition)) {
+        for (Direction nd : Direction.values()) {
+            BlockPos npos = worldPosition.relative(nd);
             var be = level.getBlockEntity(npos);
             if (be instanceof FluidTankBlockEntity tank && "oil".equals(tank.getMedium().id) && tank.getAmountmB() >= batchmB) {
                 // consume oil
                 tank.flow(level, npos, -batchmB);
                 // produce fractions into three neighboring tanks (if exist) in order
                 var outs = new java.util.ArrayList<FluidTankBlockEntity>();
-                for (var outPos : com.infinitymax.industry.fluid.FluidNetwork.neighbors(worldPosition)) {
+                for (Direction od : Direction.values()) {
+                    BlockPos outPos = worldPosition.relative(od);
                     var outBe = level.getBlockEntity(outPos);
                     if (outBe instanceof FluidTankBlockEntity outTank && outTank.getAmountmB() < outTank.getCapacitymB()) {
                         outs.add(outTank);
@@ -6,6 +6,7 @@ import com.infinitymax.industry.fluid.Medium;
 import com.infinitymax.industry.recipe.MachineRecipe;
 import com.infinitymax.industry.recipe.RecipeHelper;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.state.BlockState;
 
 /**
@@ -29,11 +30,13 @@ public class ElectrolyzerBlockEntity extends MachineBlockEntity {
         if (level == null || level.isClientSide) return;
 
         // find neighbor tank with water (simple 6方向チェック)
-        for (var npos : com.infinitymax.industry.fluid.FluidNetwork.neighbors(worldPosition)) {
+        for (Direction nd : Direction.values()) {
+            BlockPos npos = worldPosition.relative(nd);
             var be = level.getBlockEntity(npos);
             if (be instanceof FluidTankBlockEntity tank && tank.getMedium() == Medium.WATER && tank.getAmountmB() >= consumePerOperationmB) {
                 // check an output neighbor to push hydrogen
-                for (var outPos : com.infinitymax.industry.fluid.FluidNetwork.neighbors(worldPosition)) {
+                for (Direction od : Direction.values()) {
+                    BlockPos outPos = worldPosition.relative(od);
                     var outBe = level.getBlockEntity(outPos);
                     if (outBe instanceof FluidTankBlockEntity outTank && outTank.getMedium() == Medium.HYDROGEN || outTank.getAmountmB() == 0) {
                         // consume water
@@ -0,0 +1,93 @@
+package com.infinitymax.industry.blockentity;
+
+import com.infinitymax.industry.block.MachineBlock;
+import com.infinitymax.industry.energy.EnergyPool;
+import com.infinitymax.industry.energy.IPooledStorage;
+import com.infinitymax.industry.energy.PowerUnits;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * 蓄電ブロック（BATTERY_BANK / SUPERCONDUCTOR_STORAGE）
+ * - 電力ネットワークに接続されると EnergyPool に預けられ、充放電はプールがまとめて行う
+ * - プールに入っている間 energyJ は古い値。取り分は保存時に pool.shareOf で読み、撤去時に leave で書き戻す
+ * - どのネットワークにも入っていないとき（resolve 前）は IElectricNode として自前で充放電する
+ * - プールに入っている間の優先度はプールの STORAGE（ノードごとの powerPriority は自前で充放電するときだけ使う）
+ */
+public class EnergyStorageBlockEntity extends MachineBlockEntity implements IPooledStorage {
+
+    private final double nominalV;
+    private final double maxA;
+    // pool this block is deposited in (null = holds its own energyJ)
+    private EnergyPool pool;
+
+    public EnergyStorageBlockEntity(BlockPos pos, BlockState state, MachineBlock.Kind kind) {
+        super(pos, state, kind);
+        if (kind == MachineBlock.Kind.SUPERCONDUCTOR_STORAGE) {
+            this.energyCapJ = 100_000_000.0;
+            this.nominalV = 1000.0;
+            this.maxA = 2000.0;
+        } else {
+            this.energyCapJ = 5_000_000.0;
+            this.nominalV = 240.0;
+            this.maxA = 200.0;
+        }
+        markData();
+    }
+
+    /** 蓄電ブロックの種類か */
+    public static boolean isStorageKind(MachineBlock.Kind kind) {
+        return kind == MachineBlock.Kind.BATTERY_BANK || kind == MachineBlock.Kind.SUPERCONDUCTOR_STORAGE;
+    }
+
+    @Override
+    public void setRemoved() {
+        // take our share back before the network forgets us (chunk unload already saved it)
+        if (pool != null) pool.leave(this);
+        super.setRemoved();
+    }
+
+    @Override
+    protected void saveAdditional(CompoundTag tag) {
+        if (pool != null) energyJ = pool.shareOf(this);
+        super.saveAdditional(tag);
+    }
+
+    @Override
+    public double getEnergyJ() {
+        return pool != null ? pool.shareOf(this) : energyJ;
+    }
+
+    @Override
+    protected void markData() {
+        super.markData();
+        data.set(2, (int) Math.min(Integer.MAX_VALUE, Math.round(getEnergyJ())));
+    }
+
+    // ===== IPooledStorage =====
+    @Override public double getCapacityJ() { return energyCapJ; }
+    @Override public double getOwnStoredJ() { return energyJ; }
+    @Override public void setOwnStoredJ(double joules) { energyJ = Math.max(0.0, Math.min(energyCapJ, joules)); }
+    @Override public double getMaxChargeA() { return maxA; }
+    @Override public double getMaxDischargeA() { return maxA; }
+    @Override public double getNominalVoltageV() { return nominalV; }
+    @Override public EnergyPool getPool() { return pool; }
+    @Override public void setPool(EnergyPool pool) { this.pool = pool; }
+
+    // ===== IElectricNode (only used while not pooled) =====
+    @Override public double getVoltageV() { return nominalV; }
+    @Override public double getInternalResistanceOhm() { return 0.01; }
+    @Override public double getMaxIntakeA() { return Math.min(maxA, (energyCapJ - energyJ) * PowerUnits.TICK_PER_SECOND / nominalV); }
+    @Override public double getMaxOutputA() { return Math.min(maxA, energyJ * PowerUnits.TICK_PER_SECOND / nominalV); }
+
+    @Override
+    public double pushPullCurrent(Level level, BlockPos pos, double requestedVoltageV, double requestedCurrentA) {
+        double v = requestedVoltageV > 0.0 ? requestedVoltageV : nominalV;
+        setOwnStoredJ(energyJ + PowerUnits.powerW(v, requestedCurrentA) / PowerUnits.TICK_PER_SECOND);
+        // only report when the cap leaves its rating / moves on the buffer-limited side
+        reportCapacity();
+        return requestedCurrentA;
+    }
+}
@@ -1,12 +1,18 @@
 package com.infinitymax.industry.blockentity;
 
 import com.infinitymax.industry.block.MachineBlock;
+import com.infinitymax.industry.energy.IElectricNode;
+import com.infinitymax.industry.energy.PowerPriority;
+import com.infinitymax.industry.energy.PowerUnits;
 import com.infinitymax.industry.fluid.FluidStack;
 import com.infinitymax.industry.fluid.FluidTankBlockEntity;
 import com.infinitymax.industry.recipe.MachineRecipe;
 import com.infinitymax.industry.recipe.RecipeHelper;
+import com.infinitymax.industry.tick.IServerTickable;
+import com.infinitymax.industry.tick.TickDispatcher;
 import com.infinitymax.industry.util.InventoryHelper;
 import com.infinitymax.industry.gui.machine.MachineMenu;
+import com.infinitymax.industry.network.SmartNetworkManager;
 
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -22,6 +28,7 @@ import net.minecraft.world.inventory.AbstractContainerMenu;
 import net.minecraft.world.inventory.ContainerData;
 import net.minecraft.world.inventory.SimpleContainerData;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockState;
@@ -39,8 +46,13 @@ import java.util.List;
  * - tanks[]: 内部小型タンク（派生機に合わせて数/容量を調整）
  *
  * Recipe の流体要求があれば、隣接の FluidTankBlockEntity から自動で吸い上げる（短時間）実装。
+ *
+ * 電力：
+ * - IElectricNode の負荷として電力ネットワークに入り、受けた電流を energyJ に貯める（発電系の kind は受電しない）
+ * - 受電の優先度（PowerPriority）はノードごとに持ち、setPowerPriority で変えられる（NBT に保存）。
+ *   既定は kind で決まる（defaultPriority）
  */
-public class MachineBlockEntity extends BlockEntity implements MenuProvider {
+public class MachineBlockEntity extends BlockEntity implements MenuProvider, IServerTickable, IElectricNode {
 
     public static BlockEntityType<MachineBlockEntity> TYPE; // RegistryManager で注入
 
@@ -50,10 +62,20 @@ public class MachineBlockEntity extends BlockEntity implements MenuProvider {
     protected int progress = 0;
     protected int progressRequired = 0;
     protected MachineRecipe currentRecipe = null;
+    // 稼働集合から外れている（イベント待ち）
+    protected boolean sleeping = false;
+    // 前回 serverTick の gameTime（-1 = 未 tick）。間引き・持ち越し時の経過 tick 数の計算に使う
+    protected long lastTickGameTime = -1;
 
     // energy
     protected double energyJ = 0.0;
     protected double energyCapJ = 200_000.0;
+    protected double inputVoltageV = 240.0;
+    protected double maxIntakeA = 100.0;
+    protected PowerPriority powerPriority;
+    // caps last reported to the network (NaN = not yet reported)
+    private double reportedIntakeA = Double.NaN;
+    private double reportedOutputA = Double.NaN;
 
     // internal tanks (default: 2 small tanks, 派生で変更可能)
     protected final FluidStack[] tanks;
@@ -64,89 +86,180 @@ public class MachineBlockEntity extends BlockEntity implements MenuProvider {
     public MachineBlockEntity(BlockPos pos, BlockState state, MachineBlock.Kind kind) {
         super(TYPE, pos, state);
         this.kind = kind;
+        this.powerPriority = defaultPriority(kind);
         this.tanks = new FluidStack[] { new FluidStack(net.minecraft.world.level.material.Fluids.EMPTY, 0),
                                         new FluidStack(net.minecraft.world.level.material.Fluids.EMPTY, 0) };
         markData();
     }
 
-    // ----- server tick -----
+    // level が入ってから登録する（コンストラクタ時点では未設定）
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        TickDispatcher.register(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
+
+    /** kind に応じた BE を作る（蓄電ブロックは EnergyStorageBlockEntity） */
+    public static MachineBlockEntity create(BlockPos pos, BlockState state, MachineBlock.Kind kind) {
+        return EnergyStorageBlockEntity.isStorageKind(kind)
+                ? new EnergyStorageBlockEntity(pos, state, kind)
+                : new MachineBlockEntity(pos, state, kind);
+    }
+
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        TickDispatcher.unregister(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
+
+    // 加工機は TickBudget を超えたら次 tick に回してよい
+    @Override public boolean isDeferrable() { return true; }
+
+    // 距離 tier による間引きを受ける（serverTick で経過 tick 分をまとめて進める）
+    @Override public boolean supportsCatchUp() { return true; }
+
+    // ----- server tick (TickDispatcher から呼ばれる) -----
+    // 遠距離 tier（1/4, 1/20）や予算切れの持ち越しで毎 tick 呼ばれるとは限らないので、
+    // 前回からの経過 tick 数を数えて advance() でまとめて進める。
+    // 経過 tick は切り捨てない（全速と同じ結果にするため）。眠っていた間は wake() が lastTickGameTime を
+    // 起きた時刻に戻すので数えない。advance の 1 周はレシピ 1 回分なので、長い経過でも手間は完了数に比例するだけ
+    @Override
     public void serverTick() {
         if (level == null || level.isClientSide) return;
+        long now = level.getGameTime();
+        int elapsed = lastTickGameTime < 0 ? 1 : (int) Math.max(1, Math.min(Integer.MAX_VALUE, now - lastTickGameTime));
+        lastTickGameTime = now;
+        advance(elapsed);
+        // 消費で受電の上限が動いたら知らせる（派生機が energyJ を直接減らした分も次の tick でここに来る）
+        reportCapacity();
+    }
 
-        // 1) recipe lookup if none
-        if (currentRecipe == null) {
-            currentRecipe = RecipeHelper.findMatching(level, kind.name().toLowerCase(),
-                    items[0], items[1]);
-            if (currentRecipe != null) {
+    /**
+     * elapsed tick 分を閉じた形で進める。全速で elapsed 回 tick したのと同じ出力・同じ消費電力になる:
+     * - 進められる tick 数 = min(残り tick, レシピ残り, floor(energyJ / joulesPerTick))
+     * - energyJ -= joulesPerTick * n を 1 回で行う
+     * - 途中でレシピが完了したら、残り tick で次のレシピを続ける
+     * （期間中に届いた電力はバッファに溜まっているので、バッファ上限に達しない限り同じ結果）
+     */
+    protected void advance(int elapsed) {
+        boolean changed = false;
+        while (elapsed > 0) {
+            // 1) recipe lookup if none
+            if (currentRecipe == null) {
+                currentRecipe = RecipeHelper.findMatching(level, kind.name().toLowerCase(),
+                        items[0], items[1]);
+                if (currentRecipe == null) {
+                    // no recipe: スロット変化で起こされるまで眠る
+                    sleep();
+                    break;
+                }
                 progressRequired = currentRecipe.getTicks();
                 progress = 0;
             }
-        }
 
-        if (currentRecipe != null) {
             // ensure fluid inputs are available (try to draw from neighbors into internal tanks)
             if (!ensureFluidInputs(currentRecipe.getFluidInputs())) {
-                // missing fluids: do not progress
-                markData();
-                setChanged();
-                return;
+                // missing fluids: 隣接タンクの変化で起こされるまで眠る
+                sleep();
+                break;
             }
 
-            double needJ = currentRecipe.getJoulesPerTick();
-            // if insufficient energy, we wait. Energy is expected to be injected by network via IElectricNode
-            if (energyJ >= needJ) {
-                energyJ -= needJ;
-                progress++;
-
-                if (progress >= progressRequired) {
-                    // finalization: produce item outputs (try to insert), produce fluid outputs
-                    boolean outputOk = true;
-                    // items
-                    for (ItemStack out : currentRecipe.getOutputs()) {
-                        if (!InventoryHelper.canInsert(items[2], out, out.getMaxStackSize())) {
-                            outputOk = false;
-                            break;
-                        }
-                    }
-
-                    if (outputOk) {
-                        // consume items input counts
-                        for (ItemStack need : currentRecipe.getInputs()) {
-                            if (need != null && !need.isEmpty()) {
-                                // try to consume from slot0 or slot1
-                                if (InventoryHelper.itemMatches(items[0], need)) InventoryHelper.extract(items, 0, need.getCount());
-                                else if (InventoryHelper.itemMatches(items[1], need)) InventoryHelper.extract(items, 1, need.getCount());
-                            }
-                        }
-
-                        // insert outputs (simple: outputs go into slot2 stacked)
-                        for (ItemStack out : currentRecipe.getOutputs()) {
-                            InventoryHelper.insert(items, 2, out.copy(), out.getMaxStackSize());
-                        }
-
-                        // produce fluid outputs into internal tanks; if tank full, push to neighbors
-                        produceFluidOutputs(currentRecipe.getFluidOutputs());
-
-                        // reset
-                        currentRecipe = null;
-                        progress = 0;
-                        progressRequired = 0;
-                    } else {
-                        // cannot place outputs -> stall
-                        progress = progressRequired; // keep at finished until space
-                    }
+            if (progress < progressRequired) {
+                double needJ = currentRecipe.getJoulesPerTick();
+                int want = Math.min(elapsed, progressRequired - progress);
+                int steps = needJ <= 0.0 ? want : (int) Math.min(want, Math.floor(energyJ / needJ));
+                if (steps <= 0) {
+                    // not enough energy: 受電（addEnergyJ）で起こされるまで眠る
+                    sleep();
+                    break;
+                }
+                energyJ -= needJ * steps;
+                progress += steps;
+                elapsed -= steps;
+                changed = true;
+                if (progress < progressRequired) {
+                    // 電力切れで途中停止（elapsed が残っていれば電力不足）
+                    if (elapsed > 0) sleep();
+                    break;
                 }
             } else {
-                // not enough energy: optionally request from network (left to ElectricNetwork to push)
+                // 出力詰まりからの再開: 完了処理だけで 1 tick 使う（全速時と同じ）
+                elapsed--;
+            }
+
+            // finalization: produce item outputs (try to insert), produce fluid outputs
+            if (!canPlaceOutputs(currentRecipe)) {
+                // cannot place outputs -> stall at finished until space. 出力スロットが空くまで眠る
+                progress = progressRequired;
+                sleep();
+                break;
+            }
+
+            // consume items input counts
+            for (ItemStack need : currentRecipe.getInputs()) {
+                if (need != null && !need.isEmpty()) {
+                    // try to consume from slot0 or slot1
+                    if (InventoryHelper.itemMatches(items[0], need)) InventoryHelper.extract(items, 0, need.getCount());
+                    else if (InventoryHelper.itemMatches(items[1], need)) InventoryHelper.extract(items, 1, need.getCount());
+                }
+            }
+
+            // insert outputs (simple: outputs go into slot2 stacked)
+            for (ItemStack out : currentRecipe.getOutputs()) {
+                InventoryHelper.insert(items, 2, out.copy(), out.getMaxStackSize());
             }
+
+            // produce fluid outputs into internal tanks; if tank full, push to neighbors
+            produceFluidOutputs(currentRecipe.getFluidOutputs());
+
+            // reset
+            currentRecipe = null;
+            progress = 0;
+            progressRequired = 0;
+            changed = true;
         }
 
-        // small passive discharge / safety clamp
-        energyJ = Math.max(0.0, Math.min(energyCapJ, energyJ - 0.0));
+        if (!changed) return;
+        // 浮動小数点誤差で範囲外に出ないよう丸める
+        energyJ = Math.max(0.0, Math.min(energyCapJ, energyJ));
         markData();
         setChanged();
     }
 
+    private boolean canPlaceOutputs(MachineRecipe recipe) {
+        for (ItemStack out : recipe.getOutputs()) {
+            if (!InventoryHelper.canInsert(items[2], out, out.getMaxStackSize())) return false;
+        }
+        return true;
+    }
+
+    // ----- sleep / wake -----
+    // 何もできない間（レシピ無し・流体不足・電力不足・出力詰まり）は TickDispatcher の稼働集合から外れる。
+    // スロット変化・受電・隣接ブロック/タンクの変化・出力スロットの空きで wake() される。
+
+    protected void sleep() {
+        if (sleeping) return;
+        sleeping = true;
+        TickDispatcher.sleep(this);
+    }
+
+    /** 外部イベントから呼ぶ。眠っていなければ何もしない（安価） */
+    public void wake() {
+        if (!sleeping) return;
+        sleeping = false;
+        // 眠っていた間は何も進まないので、経過 tick は起きた時点から数える
+        if (level != null) lastTickGameTime = level.getGameTime();
+        TickDispatcher.wake(this);
+    }
+
+    public boolean isSleeping() { return sleeping; }
+
     // ----- helper: ensure fluids available by pulling from neighbors into internal tanks when needed -----
     protected boolean ensureFluidInputs(List<FluidStack> required) {
         if (required == null || required.isEmpty()) return true;
@@ -256,6 +369,7 @@ public class MachineBlockEntity extends BlockEntity implements MenuProvider {
         }
         progress = tag.getInt("progress");
         progressRequired = tag.getInt("progressReq");
+        powerPriority = PowerPriority.byName(tag.getString("powerPriority"), defaultPriority(kind));
     }
 
     @Override
@@ -268,6 +382,7 @@ public class MachineBlockEntity extends BlockEntity implements MenuProvider {
         for (int i = 0; i < tanks.length; i++) tag.put("tank" + i, tanks[i] == null ? (new FluidStack(net.minecraft.world.level.material.Fluids.EMPTY,0)).writeToNbt() : tanks[i].writeToNbt());
         tag.putInt("progress", progress);
         tag.putInt("progressReq", progressRequired);
+        tag.putString("powerPriority", powerPriority.name());
     }
 
     // ========== GUI data sync helper ==========
@@ -282,12 +397,83 @@ public class MachineBlockEntity extends BlockEntity implements MenuProvider {
 
     // ========== Accessors used by GUI etc ==========
     public ItemStack getSlot(int i) { return items[i]; }
-    public void setSlot(int i, ItemStack s) { items[i] = s; }
+    public void setSlot(int i, ItemStack s) { items[i] = s; wake(); }
     public int getProgress() { return progress; }
     public int getProgressRequired() { return progressRequired; }
     public double getEnergyJ() { return energyJ; }
     public double getEnergyCapJ() { return energyCapJ; }
-    public void addEnergyJ(double amount) { energyJ = Math.min(energyCapJ, energyJ + amount); }
+    public void addEnergyJ(double amount) { energyJ = Math.min(energyCapJ, energyJ + amount); if (amount > 0) wake(); }
     public void consumeEnergyJ(double amount) { energyJ = Math.max(0, energyJ - amount); }
     public FluidStack getTankStack(int idx) { return idx >= 0 && idx < tanks.length ? tanks[idx] : new FluidStack(net.minecraft.world.level.material.Fluids.EMPTY, 0); }
+
+    // ========== 電力（IElectricNode） ==========
+
+    /** kind ごとの受電の優先度の既定: 止めると廃棄物が溜まる処理機は CRITICAL、蓄電ブロックは STORAGE */
+    public static PowerPriority defaultPriority(MachineBlock.Kind kind) {
+        return switch (kind) {
+            case NUCLEAR_WASTE_PROCESSOR -> PowerPriority.CRITICAL;
+            case BATTERY_BANK, SUPERCONDUCTOR_STORAGE -> PowerPriority.STORAGE;
+            default -> PowerPriority.NORMAL;
+        };
+    }
+
+    /** 発電・送電系の kind は MachineBlockEntity としては受電しない（専用 BE が電源・変圧を受け持つ） */
+    public static boolean drawsPower(MachineBlock.Kind kind) {
+        return switch (kind) {
+            case COAL_GEN, OIL_GEN, GAS_TURBINE, NUCLEAR_REACTOR, FAST_BREEDER, SOLAR_PANEL, WIND_TURBINE,
+                 HYDRO_TURBINE, FUEL_CELL, TRANSFORMER, POWER_TRANSMISSION_ANCHOR -> false;
+            default -> true;
+        };
+    }
+
+    /** 受電の優先度を変える（保存され、所属ネットワークは次の tick から新しい段で配る） */
+    public void setPowerPriority(PowerPriority priority) {
+        if (priority == null || priority == powerPriority) return;
+        powerPriority = priority;
+        setChanged();
+        if (level != null && !level.isClientSide) SmartNetworkManager.get().markElectricCapacityChanged(level, worldPosition);
+    }
+
+    @Override public PowerPriority getPowerPriority() { return powerPriority; }
+    @Override public double getVoltageV() { return inputVoltageV; }
+    @Override public double getInternalResistanceOhm() { return 0.1; }
+    @Override public double getMaxOutputA() { return 0.0; }
+    // 上限はバッファの空きで決まるので、動いたときだけ reportCapacity で知らせる
+    @Override public boolean reportsCapacityChanges() { return true; }
+
+    /** 定格とバッファの空き（1 tick で埋まる電流）の小さい方 */
+    @Override
+    public double getMaxIntakeA() {
+        if (!drawsPower(kind)) return 0.0;
+        return Math.max(0.0, Math.min(maxIntakeA, (energyCapJ - energyJ) * PowerUnits.TICK_PER_SECOND / inputVoltageV));
+    }
+
+    @Override
+    public double pushPullCurrent(Level level, BlockPos pos, double requestedVoltageV, double requestedCurrentA) {
+        if (requestedCurrentA <= 0.0) return 0.0;
+        double v = requestedVoltageV > 0.0 ? requestedVoltageV : inputVoltageV;
+        double acceptedJ = Math.min(energyCapJ - energyJ, PowerUnits.powerW(v, requestedCurrentA) / PowerUnits.TICK_PER_SECOND);
+        if (acceptedJ <= 0.0) return 0.0;
+        addEnergyJ(acceptedJ);
+        markData();
+        reportCapacity();
+        return acceptedJ * PowerUnits.TICK_PER_SECOND / v;
+    }
+
+    @Override
+    public void markDirtyGraph() {
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
+
+    // 前回知らせた上限から実際に動いたときだけネットワークへ知らせる（定格で頭打ちの間は黙る）
+    protected void reportCapacity() {
+        double in = getMaxIntakeA(), out = getMaxOutputA();
+        if (IElectricNode.capacityMoved(in, reportedIntakeA) || IElectricNode.capacityMoved(out, reportedOutputA)) {
+            reportedIntakeA = in;
+            reportedOutputA = out;
+            if (level != null && !level.isClientSide) SmartNetworkManager.get().markElectricCapacityChanged(level, worldPosition);
+        }
+    }
 }
\ No newline at end of file
@@ -1,15 +1,18 @@
 package com.infinitymax.industry.blockentity;
 
+import com.infinitymax.industry.network.SmartNetworkManager;
+import com.infinitymax.industry.tick.IServerTickable;
 import com.infinitymax.industry.tick.TickDispatcher;
 import com.infinitymax.industry.fluid.IPressureNode;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 
 /**
  * 圧力逃がし弁：閾値を超えたら一定 mB を放出（周囲への flow 呼び出しを使う）
  */
-public class PressureReliefValveBlockEntity extends BlockEntity implements IPressureNode {
+public class PressureReliefValveBlockEntity extends BlockEntity implements IPressureNode, IServerTickable {
 
     public static net.minecraft.world.level.block.entity.BlockEntityType<PressureReliefValveBlockEntity> TYPE;
     private double thresholdKPa = 250.0;
@@ -22,10 +25,25 @@ public class PressureReliefValveBlockEntity extends BlockEntity implements IPres
 
     public PressureReliefValveBlockEntity(BlockPos pos, BlockState state) {
         super(TYPE, pos, state);
-        TickDispatcher.register(this);
     }
 
-    @Override public void setRemoved() { super.setRemoved(); TickDispatcher.unregister(this); }
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        TickDispatcher.unregister(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markFluidDirty(level, worldPosition);
+        }
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        TickDispatcher.register(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markFluidDirty(level, worldPosition);
+        }
+    }
 
     @Override public double getPressureKPa() { return pressureKPa; }
     @Override public int getCapacitymB() { return capacitymB; }
@@ -51,14 +69,21 @@ public class PressureReliefValveBlockEntity extends BlockEntity implements IPres
         }
     }
 
-    @Override public void markDirtyGraph() {}
+    @Override
+    public void markDirtyGraph() {
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markFluidDirty(level, worldPosition);
+        }
+    }
 
+    @Override
     public void serverTick() {
         if (level == null || level.isClientSide) return;
         if (pressureKPa > thresholdKPa && amountmB > 0) {
             // release into neighbors: attempt to flow releaseAmountmB to each neighbor using FluidNetwork.tick consumer model
             // For simplicity, we try to directly call neighbor flow()
-            for (var npos : com.infinitymax.industry.fluid.FluidNetwork.neighbors(worldPosition)) {
+            for (Direction nd : Direction.values()) {
+                BlockPos npos = worldPosition.relative(nd);
                 var be = level.getBlockEntity(npos);
                 if (be instanceof IPressureNode) {
                     int pushed = ((IPressureNode)be).flow(level, npos, Math.min(releaseAmountmB, amountmB));
@@ -1,8 +1,13 @@
 package com.infinitymax.industry.blockentity;
 
-import com.infinitymax.industry.tick.TickDispatcher;
 import com.infinitymax.industry.energy.IElectricNode;
+import com.infinitymax.industry.energy.IVoltageCoupler;
+import com.infinitymax.industry.energy.PowerUnits;
+import com.infinitymax.industry.network.SmartNetworkManager;
+import com.infinitymax.industry.tick.IServerTickable;
+import com.infinitymax.industry.tick.TickDispatcher;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
@@ -10,52 +15,166 @@ import net.minecraft.world.level.block.state.BlockState;
 
 /**
  * 2ポート（簡易）変圧器
- * - HV 側入力を受け、LV 側へ電流を増やして電圧を下げる（電力保存近似）
- * - ここではブロックの向き/ポートは未実装。動作は ElectricNetwork の分配時に端子情報を使って近似。
+ * - 電圧ドメインの境界（IVoltageCoupler）。入力面と出力面の先はそれぞれ別の電力ネットワークになる
+ * - 降圧（既定）: HV 側の面（上）から受電し、LV 側の面（下）へ送電する。stepUp なら逆（LV 受電 -> HV 送電）
+ * - 両ドメインは独立に解かれ、電力は内部バッファ（最大 1 tick 分 + 余裕）を介して受け渡す
+ * - 巻線抵抗 internalR の I²R 損失はバッファに入る前に差し引く
  */
-public class TransformerBlockEntity extends BlockEntity implements IElectricNode {
+public class TransformerBlockEntity extends BlockEntity implements IVoltageCoupler, IServerTickable {
 
     public static BlockEntityType<TransformerBlockEntity> TYPE;
 
-    // internal model: two terminals (A and B) approximated by voltages and max currents
+    // internal model: two terminals (HV and LV) approximated by voltages and max currents
     private double hvVoltage = 1000.0;
     private double lvVoltage = 240.0;
     private double hvMaxA = 50.0;
     private double lvMaxA = 200.0;
     private double internalR = 0.05;
 
+    // port layout
+    private Direction hvSide = Direction.UP;
+    private Direction lvSide = Direction.DOWN;
+    private boolean stepUp = false;
+
+    // energy in transit between the two domains [J]
+    private double bufferJ = 0.0;
+
+    // port caps last reported to each domain (NaN = not yet reported)
+    private double reportedInputA = Double.NaN;
+    private double reportedOutputA = Double.NaN;
+
     public TransformerBlockEntity(BlockPos pos, BlockState state) {
         super(TYPE, pos, state);
-        TickDispatcher.register(this);
     }
 
     @Override
     public void setRemoved() {
         super.setRemoved();
         TickDispatcher.unregister(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
     }
 
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        TickDispatcher.register(this);
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
+
+    @Override
     public void serverTick() {
         if (level == null || level.isClientSide) return;
-        // nothing active by itself; ElectricNetwork will call pushPullCurrent on it.
+        // nothing active by itself; each adjacent ElectricNetwork drives one port.
     }
 
-    // IElectricNode: treat transformer as conductor with special internal behavior
-    @Override public double getVoltageV() { return (hvVoltage + lvVoltage) / 2.0; } // approximate
+    // 1 tick に通せる電力量 [J]（入力側の定格）の 2 倍までバッファする
+    private double maxBufferJ() {
+        return 2.0 * getInputVoltageV() * inputMaxA() / PowerUnits.TICK_PER_SECOND;
+    }
+
+    private double inputMaxA() { return stepUp ? lvMaxA : hvMaxA; }
+
+    private double outputMaxA() { return stepUp ? hvMaxA : lvMaxA; }
+
+    // ===== IVoltageCoupler =====
+    @Override public Direction getInputSide() { return stepUp ? lvSide : hvSide; }
+    @Override public Direction getOutputSide() { return stepUp ? hvSide : lvSide; }
+    @Override public double getInputVoltageV() { return stepUp ? lvVoltage : hvVoltage; }
+    @Override public double getOutputVoltageV() { return stepUp ? hvVoltage : lvVoltage; }
     @Override public double getInternalResistanceOhm() { return internalR; }
-    @Override public double getMaxIntakeA() { return Math.max(hvMaxA, lvMaxA); }
-    @Override public double getMaxOutputA() { return Math.max(hvMaxA, lvMaxA); }
 
     @Override
-    public double pushPullCurrent(net.minecraft.world.level.Level level, BlockPos pos, double requestedVoltageV, double requestedCurrentA) {
-        // Simplified: if request is positive -> absorb, negative -> supply
-        // We won't implement port differentiation here; ElectricNetwork should ensure proper distribution
-        double allowed = Math.min(Math.abs(requestedCurrentA), Math.max(hvMaxA, lvMaxA));
-        double sign = Math.signum(requestedCurrentA);
-        // No internal storage in this simplified impl; just pass-through scaled by ratio
-        // If supplying (negative requestedCurrentA), scale down voltage and increase current capacity
-        return sign * allowed;
+    public double getInputIntakeA() {
+        double roomJ = Math.max(0.0, maxBufferJ() - bufferJ);
+        return Math.min(inputMaxA(), roomJ * PowerUnits.TICK_PER_SECOND / getInputVoltageV());
+    }
+
+    @Override
+    public double getOutputMaxA() {
+        return Math.min(outputMaxA(), bufferJ * PowerUnits.TICK_PER_SECOND / getOutputVoltageV());
+    }
+
+    @Override
+    public double acceptInput(double voltageV, double currentA) {
+        double a = Math.min(currentA, getInputIntakeA());
+        if (a <= 0.0) return 0.0;
+        double v = voltageV > 0.0 ? voltageV : getInputVoltageV();
+        double inJ = PowerUnits.powerW(v, a) / PowerUnits.TICK_PER_SECOND;
+        double lossJ = PowerUnits.resistiveLossJ(a, internalR, 1.0);
+        bufferJ += Math.max(0.0, inJ - lossJ);
+        reportCapacity();
+        return a;
     }
 
-    @Override public void markDirtyGraph() {}
-}
\ No newline at end of file
+    @Override
+    public double drawOutput(double voltageV, double currentA) {
+        double v = voltageV > 0.0 ? voltageV : getOutputVoltageV();
+        double a = Math.min(currentA, Math.min(outputMaxA(), bufferJ * PowerUnits.TICK_PER_SECOND / v));
+        if (a <= 0.0) return 0.0;
+        bufferJ = Math.max(0.0, bufferJ - PowerUnits.powerW(v, a) / PowerUnits.TICK_PER_SECOND);
+        reportCapacity();
+        return a;
+    }
+
+    @Override public boolean reportsCapacityChanges() { return true; }
+
+    // The buffer moves both port caps, so either domain's transfer can change the other side.
+    // Only tell a domain when its own port cap actually moved (rated-limited flow stays cached).
+    private void reportCapacity() {
+        if (level == null || level.isClientSide) return;
+        double in = getInputIntakeA(), out = getOutputMaxA();
+        if (IElectricNode.capacityMoved(in, reportedInputA)) {
+            reportedInputA = in;
+            SmartNetworkManager.get().markElectricCapacityChanged(level, worldPosition.relative(getInputSide()));
+        }
+        if (IElectricNode.capacityMoved(out, reportedOutputA)) {
+            reportedOutputA = out;
+            SmartNetworkManager.get().markElectricCapacityChanged(level, worldPosition.relative(getOutputSide()));
+        }
+    }
+
+    @Override
+    public boolean isDetached() {
+        return isRemoved() || level == null;
+    }
+
+    @Override
+    public void markDirtyGraph() {
+        if (level != null && !level.isClientSide) {
+            SmartNetworkManager.get().markElectricDirty(level, worldPosition);
+        }
+    }
+
+    /** ポートの面と向き（降圧 / 昇圧）を変える。両側のドメインに引き直させる */
+    public void configure(Direction hv, Direction lv, boolean stepUp) {
+        if (hv == lv) return;
+        this.hvSide = hv;
+        this.lvSide = lv;
+        this.stepUp = stepUp;
+        reportedInputA = reportedOutputA = Double.NaN;
+        setChanged();
+        markDirtyGraph();
+    }
+
+    @Override
+    public void load(CompoundTag tag) {
+        super.load(tag);
+        bufferJ = tag.getDouble("bufferJ");
+        if (tag.contains("hvSide")) hvSide = Direction.from3DDataValue(tag.getInt("hvSide"));
+        if (tag.contains("lvSide")) lvSide = Direction.from3DDataValue(tag.getInt("lvSide"));
+        stepUp = tag.getBoolean("stepUp");
+    }
+
+    @Override
+    public void saveAdditional(CompoundTag tag) {
+        super.saveAdditional(tag);
+        tag.putDouble("bufferJ", bufferJ);
+        tag.putInt("hvSide", hvSide.get3DDataValue());
+        tag.putInt("lvSide", lvSide.get3DDataValue());
+        tag.putBoolean("stepUp", stepUp);
+    }
+}
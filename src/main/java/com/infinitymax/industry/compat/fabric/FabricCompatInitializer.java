@@ -1,37 +1,35 @@
 package com.infinitymax.industry.compat.fabric;
 
+import com.infinitymax.industry.network.SmartNetworkManager;
 import com.infinitymax.industry.tick.TickDispatcher;
+import net.minecraft.world.level.Level;
+
+import java.util.function.Consumer;
 
 /**
  * Fabric 用互換初期化器
- * - Fabric API が存在する場合は ServerTickEvents.END_SERVER_TICK に登録する
+ * - Fabric API が存在する場合は ServerTickEvents.END_WORLD_TICK に登録する（level ごとに TickDispatcher.tickLevel）
+ * - ServerWorldEvents.UNLOAD で level ごとの状態を捨てる（SmartNetworkManager / TickDispatcher の onLevelUnload。
+ *   NeoForge の LevelEvent.Unload と同じ）
  *
  * 使い方: Mod コンストラクタで FabricCompatInitializer.init() を呼ぶ（try/catch して安全に）
  */
 public final class FabricCompatInitializer {
 
+    private static final String LIFECYCLE = "net.fabricmc.fabric.api.event.lifecycle.v1.";
+
     private FabricCompatInitializer() {}
 
     public static void init() {
         try {
             // dynamic load to avoid NoClassDefFoundError when fabric-api is not present
-            Class<?> serverTickEvents = Class.forName("net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents");
-            java.lang.reflect.Method reg = serverTickEvents.getMethod("END_SERVER_TICK");
-            Object obj = reg.invoke(null); // got the Event instance
-            // Event has method register(ServerTickEvents.EndTick), we'll find it
-            Class<?> endTickClass = Class.forName("net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents$EndTick");
-            java.lang.reflect.Method registerMethod = obj.getClass().getMethod("register", endTickClass);
-            // build lambda implementing EndTick: (server) -> TickDispatcher.tickAll()
-            Object listener = java.lang.reflect.Proxy.newProxyInstance(
-                    FabricCompatInitializer.class.getClassLoader(),
-                    new Class<?>[]{endTickClass},
-                    (proxy, method, args) -> {
-                        if (method.getName().equals("onEndTick")) {
-                            TickDispatcher.tickAll();
-                        }
-                        return null;
-                    });
-            registerMethod.invoke(obj, listener);
+            // EndWorldTick.onEndTick(ServerWorld)
+            listen("ServerTickEvents", "END_WORLD_TICK", "EndWorldTick", "onEndTick", TickDispatcher::tickLevel);
+            // Unload.onWorldUnload(MinecraftServer, ServerWorld)
+            listen("ServerWorldEvents", "UNLOAD", "Unload", "onWorldUnload", level -> {
+                SmartNetworkManager.get().onLevelUnload(level);
+                TickDispatcher.onLevelUnload(level);
+            });
             System.out.println("[InfinityMax-Compat][Fabric] initialized (using reflection)");
         } catch (ClassNotFoundException cnf) {
             // Fabric API not present — ignore silently
@@ -41,4 +39,25 @@ public final class FabricCompatInitializer {
             t.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    // events.FIELD.register(listener) をリフレクションで行う。listener の callback の最後の引数が level
+    private static void listen(String events, String field, String listenerType, String callback,
+                               Consumer<Level> handler) throws ReflectiveOperationException {
+        Class<?> eventsClass = Class.forName(LIFECYCLE + events);
+        Object event = eventsClass.getField(field).get(null); // got the Event instance
+        // Event has method register(<events>.<listenerType>), we'll find it
+        Class<?> listenerClass = Class.forName(LIFECYCLE + events + "$" + listenerType);
+        java.lang.reflect.Method registerMethod = event.getClass().getMethod("register", listenerClass);
+        Object listener = java.lang.reflect.Proxy.newProxyInstance(
+                FabricCompatInitializer.class.getClassLoader(),
+                new Class<?>[]{listenerClass},
+                (proxy, method, args) -> {
+                    if (method.getName().equals(callback) && args != null && args.length > 0
+                            && args[args.length - 1] instanceof Level level) {
+                        handler.accept(level);
+                    }
+                    return null;
+                });
+        registerMethod.invoke(event, listener);
+    }
+}
@@ -1,14 +1,18 @@
 package com.infinitymax.industry.compat.neoforge;
 
+import com.infinitymax.industry.network.SmartNetworkManager;
 import com.infinitymax.industry.tick.TickDispatcher;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.LevelEvent;
 import net.minecraftforge.fml.common.Mod;
 
 /**
  * NeoForge / Forge 用互換初期化器
- * - ServerTickEvent の END フェーズで TickDispatcher.tickAll を呼ぶ
+ * - LevelTickEvent の END フェーズで TickDispatcher.tickLevel(level) を呼ぶ（サーバ側 level ごとに 1 回）
+ * - LevelEvent.Unload で level ごとの状態（tick 対象・ネットワーク）を外す
  *
  * 使い方: Mod コンストラクタで NeoForgeCompatInitializer.init() を呼ぶ
  */
@@ -26,12 +30,24 @@ public final class NeoForgeCompatInitializer {
     }
 
     @SubscribeEvent
-    public void onServerTick(TickEvent.ServerTickEvent event) {
+    public void onLevelTick(TickEvent.LevelTickEvent event) {
         if (event.phase != TickEvent.Phase.END) return;
+        if (!(event.level instanceof ServerLevel level)) return;
         try {
-            TickDispatcher.tickAll();
+            TickDispatcher.tickLevel(level);
         } catch (Throwable t) {
             t.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    @SubscribeEvent
+    public void onLevelUnload(LevelEvent.Unload event) {
+        if (!(event.getLevel() instanceof ServerLevel level)) return;
+        try {
+            SmartNetworkManager.get().onLevelUnload(level);
+            TickDispatcher.onLevelUnload(level);
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.infinitymax.industry.energy;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+
+/**
+ * IVoltageCoupler の片側を、そのドメインの IElectricNode として見せるアダプタ
+ * - 入力側: 負荷（受け取った分は機器のバッファへ）
+ * - 出力側: 電源（バッファから出す）
+ * ElectricNetwork の resolve で作られ、次の resolve まで使い回す
+ */
+final class CouplerPort implements IElectricNode {
+
+    final IVoltageCoupler coupler;
+    final BlockPos pos;
+    final boolean input;
+
+    CouplerPort(IVoltageCoupler coupler, BlockPos pos, boolean input) {
+        this.coupler = coupler;
+        this.pos = pos;
+        this.input = input;
+    }
+
+    @Override public double getVoltageV() { return input ? 0.0 : coupler.getOutputVoltageV(); }
+    @Override public double getInternalResistanceOhm() { return coupler.getInternalResistanceOhm(); }
+    @Override public double getMaxIntakeA() { return input ? coupler.getInputIntakeA() : 0.0; }
+    @Override public double getMaxOutputA() { return input ? 0.0 : coupler.getOutputMaxA(); }
+    // 変圧器からの給電はバッファを空けないと上流が止まるので、燃料電源より先に使う
+    @Override public PowerPriority getPowerPriority() { return input ? PowerPriority.NORMAL : PowerPriority.CRITICAL; }
+
+    @Override public boolean reportsCapacityChanges() { return coupler.reportsCapacityChanges(); }
+
+    @Override
+    public double pushPullCurrent(Level level, BlockPos at, double requestedVoltageV, double requestedCurrentA) {
+        if (input) return requestedCurrentA > 0.0 ? coupler.acceptInput(requestedVoltageV, requestedCurrentA) : 0.0;
+        return requestedCurrentA < 0.0 ? -coupler.drawOutput(requestedVoltageV, -requestedCurrentA) : 0.0;
+    }
+
+    @Override
+    public void markDirtyGraph() {
+        coupler.markDirtyGraph();
+    }
+}
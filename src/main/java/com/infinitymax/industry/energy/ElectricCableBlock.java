@@ -14,8 +14,6 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.material.MapColor;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.entity.BlockEntityTicker;
-import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.phys.BlockHitResult;
 import org.jetbrains.annotations.Nullable;
 
@@ -24,7 +22,7 @@ import org.jetbrains.annotations.Nullable;
  *
  * - 近傍変化 (neighborChanged) や設置/破壊で BE の onNeighborsChanged() を呼び、
  *   ネットワーク再構築要求を投げる仕様にしています。
- * - serverTick を回すための getTicker を実装（サーバのみ）。
+ * - serverTick は TickDispatcher が回す（getTicker は返さない＝二重 tick 防止）。
  */
 public class ElectricCableBlock extends Block implements EntityBlock {
 
@@ -77,12 +75,4 @@ public class ElectricCableBlock extends Block implements EntityBlock {
             if (be instanceof ElectricCableBlockEntity cable) cable.onNeighborsChanged();
         }
     }
-
-    // サーバ側で BE の serverTick を呼び出すためのティッカーを返す
-    @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(Level level, BlockState state, BlockEntityType<T> type) {
-        return level.isClientSide ? null : (lvl, p, s, be) -> {
-            if (be instanceof ElectricCableBlockEntity cable) cable.serverTick();
-        };
-    }
 }
\ No newline at end of file
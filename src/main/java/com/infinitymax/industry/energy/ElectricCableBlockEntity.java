@@ -1,7 +1,6 @@
 package com.infinitymax.industry.energy;
 
 import com.infinitymax.industry.network.SmartNetworkManager;
-import com.infinitymax.industry.tick.TickDispatcher;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.level.Level;
@@ -13,7 +12,9 @@ import net.minecraft.world.level.block.state.BlockState;
  * 電力ケーブル（導体ノード）
  *
  * - SmartNetworkManager を使って局所デバウンス再構築を要求する
- * - serverTick() 内で SmartNetworkManager.serverTick(level) を呼ぶ
+ * - ネットワーク tick は TickDispatcher がレベル単位で 1 回だけ回す（ここでは呼ばない）
+ * - 導体（isConductor）なので直線区間はネットワーク側で辺に縮約され、配分の入力にならない
+ *   表示電圧は getVoltageV() の呼び出し時にネットワークから補間する（自前の tick は持たない）
  */
 public class ElectricCableBlockEntity extends BlockEntity implements IElectricNode {
 
@@ -21,24 +22,34 @@ public class ElectricCableBlockEntity extends BlockEntity implements IElectricNo
 
     private double internalResistanceOhm = 0.02;
     private double maxCurrentA = 200.0;
+    // 直近に問い合わせた電圧（保存用・クライアント表示用のキャッシュ）
     private double voltageV = 0.0;
 
     public ElectricCableBlockEntity(BlockPos pos, BlockState state) {
         super(TYPE, pos, state);
-        TickDispatcher.register(this);
     }
 
     @Override
     public void setRemoved() {
         super.setRemoved();
-        TickDispatcher.unregister(this);
         if (level != null && !level.isClientSide) {
             SmartNetworkManager.get().markElectricDirty(level, worldPosition);
         }
     }
 
     // ===== IElectricNode =====
-    @Override public double getVoltageV() { return voltageV; }
+    @Override
+    public double getVoltageV() {
+        if (level != null && !level.isClientSide) {
+            ElectricNetwork net = SmartNetworkManager.get().getElectricNetworkAt(level, worldPosition);
+            voltageV = net == null ? 0.0 : net.voltageAt(worldPosition.asLong());
+        }
+        return voltageV;
+    }
+
+    @Override public boolean isConductor() { return true; }
+    // conductor properties are read at resolve time only
+    @Override public boolean reportsCapacityChanges() { return true; }
     @Override public double getInternalResistanceOhm() { return internalResistanceOhm; }
     @Override public double getMaxIntakeA() { return maxCurrentA; }
     @Override public double getMaxOutputA() { return maxCurrentA; }
@@ -59,13 +70,6 @@ public class ElectricCableBlockEntity extends BlockEntity implements IElectricNo
         }
     }
 
-    public void serverTick() {
-        if (level == null || level.isClientSide) return;
-        SmartNetworkManager.get().serverTick(level);
-        // 表示用にわずかに減衰
-        voltageV *= 0.999;
-    }
-
     @Override
     public void onLoad() {
         super.onLoad();
@@ -1,6 +1,20 @@
 package com.infinitymax.industry.energy;
 
+import com.infinitymax.industry.network.ContractedGraph;
+import com.infinitymax.industry.network.ISolvableNetwork;
+import com.infinitymax.industry.network.ISwitchableEdge;
+import com.infinitymax.industry.network.NetworkGraph;
+import com.infinitymax.industry.network.PackedPosView;
+import com.infinitymax.industry.network.SmartNetworkManager;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
@@ -11,115 +25,665 @@ import java.util.*;
  * ElectricNetwork (改良版)
  *
  * - discoverFromOrigins(level, origins) を実装して局所再構築を可能にした
- * - discoverAll(level) はチャンク走査優先 / フォールバックを用いる
+ * - discoverAll(level) は SmartNetworkManager のチャンク別ノード索引を回す（リフレクションなし）
+ * - flood / 隣接判定は共有グラフエンジン NetworkGraph（GRAPH）に任せる
  * - tick(level) は既存の単純配分アルゴリズムのまま（負荷低減のためネットワーク単位で実行）
+ * - tick は prepare / solve / apply の 3 相（ISolvableNetwork）。solve は BE に触らないので並列実行可
+ * - 導体（isConductor）の直線区間は ContractedGraph で辺に縮約し、配分の入力は導体以外の端点だけにする
+ *   ケーブルの表示電圧は voltageAt() で問い合わせ時に補間する
+ * - 物理ソルバモード（-Dinfinitymax.nodalSolver=true / setNodalSolver）: 縮約グラフの節点解析で端点電位を解き、
+ *   内部抵抗による電圧降下と辺の I²R 損失を反映する（NodalSolver。既定は従来の比例配分）
+ * - 電圧ドメイン: IVoltageCoupler（変圧器）はグラフのノードにならないので、その両側は別ネットワークになる。
+ *   接している変圧器の面は CouplerPort として端点に加え、入力側は負荷・出力側は電源として各ドメインで独立に解く
+ * - ブレーカー等の ISwitchableEdge は端点として残し、毎 tick 通過電流を onThroughFlow で知らせる
+ *   （物理ソルバなら端点の通過電流、比例配分なら「スイッチを除いた各側の正味の電流」）。各側の成分は resolve で
+ *   スイッチごとに 1 回だけ求めて持つ。apply でトリップしたら、その tick の配分を側ごとに配り直してから反映する
+ *   （切れた側へは流さない）。開いたスイッチは sideMask が 0 になり、次の再構築で増分エンジンが切れた側だけを切り出す
+ * - 配分は優先度段（PowerPriority）ごと: 負荷は CRITICAL -> NORMAL -> STORAGE -> DUMP の順に満たし、
+ *   電源も同じ順（安い順）に使う。段の中は定格比例。段数固定のバケット集計なのでソートしない（TierAllocator）
+ * - 蓄電ノード（IPooledStorage）は resolve でネットワーク 1 つにつき 1 個の EnergyPool にまとめ、
+ *   配分にはプールだけを出す（充放電は O(1)。ノードへの書き戻しは保存・撤去・次の resolve のときだけ）
+ * - 定常の短絡: 全ノードが容量変化を報告する（reportsCapacityChanges）ネットワークで、前 tick から報告がなければ
+ *   prepare / solve を飛ばし、前 tick の配分ベクトルで apply だけ行う。報告は markCapacityDirty で立つフラグ。
+ *   バッファ持ちのノード（EnergyPool・変圧器ポート・蓄電ブロック・機械・発電機）は上限が実際に動いたときだけ報告する
+ * - apply は電源から先に引き、実際に出せた電流の割合で負荷への配分を縮める（出せなかった分を負荷へ渡さない）
  */
-public final class ElectricNetwork {
+public final class ElectricNetwork implements ISolvableNetwork {
 
-    private final Set<BlockPos> nodes;
+    /** 電力ネットワークのグラフ定義: IElectricNode 同士を、接続面が向かい合うときだけつなぐ（IVoltageCoupler はドメイン境界なので除く） */
+    public static final NetworkGraph GRAPH = new NetworkGraph(
+            be -> be instanceof IElectricNode && !(be instanceof IVoltageCoupler), NetworkGraph.MUTUAL);
+
+    // 物理ソルバの収束判定（相対残差）と 1 tick の反復上限
+    //   定常なら warm start で 0〜数反復。負荷が大きく変わって上限に当たっても、続きは次 tick の warm start から進む
+    private static final double SOLVER_TOLERANCE = 1e-4;
+    private static final int SOLVER_MAX_ITERATIONS = 64;
+
+    // 物理ソルバモード（既定 off）
+    private static volatile boolean nodalSolver = Boolean.getBoolean("infinitymax.nodalSolver");
+
+    /** 物理ソルバモードの切り替え（次の prepare から有効） */
+    public static void setNodalSolver(boolean enabled) {
+        nodalSolver = enabled;
+    }
+
+    public static boolean isNodalSolver() {
+        return nodalSolver;
+    }
+
+    // ノード座標は BlockPos.asLong() で詰めて保持（BlockPos オブジェクトを持たない）
+    private final LongOpenHashSet nodes;
+    private final LongSet nodesView;
+    private final Set<BlockPos> positionsView;
 
     public ElectricNetwork(Set<BlockPos> nodes) {
-        this.nodes = new HashSet<>(nodes);
+        this.nodes = new LongOpenHashSet(nodes.size());
+        for (BlockPos p : nodes) this.nodes.add(p.asLong());
+        this.nodesView = LongSets.unmodifiable(this.nodes);
+        this.positionsView = new PackedPosView(nodesView);
     }
 
-    public Set<BlockPos> getNodePositions() { return Collections.unmodifiableSet(nodes); }
+    public ElectricNetwork(LongSet nodes) {
+        this.nodes = new LongOpenHashSet(nodes);
+        this.nodesView = LongSets.unmodifiable(this.nodes);
+        this.positionsView = new PackedPosView(nodesView);
+    }
+
+    /** 互換用ビュー（反復のたびに BlockPos を作る。ホットパスでは getNodeKeys() を使う） */
+    public Set<BlockPos> getNodePositions() { return positionsView; }
+
+    /** ノード座標（BlockPos.asLong()）の読み取り専用ビュー */
+    public LongSet getNodeKeys() { return nodesView; }
 
     public static List<ElectricNetwork> discoverFromOrigins(ServerLevel level, Set<BlockPos> origins) {
-        List<ElectricNetwork> out = new ArrayList<>();
         if (origins == null || origins.isEmpty()) return discoverAll(level);
-
-        Set<BlockPos> visited = new HashSet<>();
-        for (BlockPos origin : origins) {
-            if (visited.contains(origin)) continue;
-            BlockEntity be = level.getBlockEntity(origin);
-            if (!(be instanceof IElectricNode)) continue;
-            Set<BlockPos> comp = flood(level, origin);
-            if (!comp.isEmpty()) {
-                visited.addAll(comp);
-                out.add(new ElectricNetwork(comp));
-            }
-        }
+        List<ElectricNetwork> out = new ArrayList<>();
+        for (LongOpenHashSet comp : GRAPH.discoverFrom(level, origins)) out.add(new ElectricNetwork(comp));
         return out;
     }
 
     public static List<ElectricNetwork> discoverAll(ServerLevel level) {
         List<ElectricNetwork> out = new ArrayList<>();
-        Set<BlockPos> visited = new HashSet<>();
-        Iterable<BlockEntity> allBE = getAllBlockEntities(level);
-        for (BlockEntity be : allBE) {
-            BlockPos pos = be.getBlockPos();
-            if (visited.contains(pos)) continue;
-            if (!(be instanceof IElectricNode)) continue;
-            Set<BlockPos> comp = flood(level, pos);
-            if (!comp.isEmpty()) {
-                visited.addAll(comp);
-                out.add(new ElectricNetwork(comp));
+        // ロード済みノードの索引だけを回す（BE の onLoad / setRemoved で維持。level 全体の BE 走査はしない）
+        LongSet known = SmartNetworkManager.get().getElectricNodeKeys(level);
+        for (LongOpenHashSet comp : GRAPH.discoverAll(level, known)) out.add(new ElectricNetwork(comp));
+        return out;
+    }
+
+    // ---- tick スナップショット（prepare で埋め、solve で計算、apply で反映） ----
+    //   スナップショットは配列 + 件数で持ち、足りないときだけ伸ばす（定常では tick ごとの確保なし）
+    private IElectricNode[] snapSources = new IElectricNode[0];
+    private IElectricNode[] snapLoads = new IElectricNode[0];
+    private int snapSourceCount = 0;
+    private int snapLoadCount = 0;
+    private double[] srcCapA = new double[0];
+    private double[] loadCapA = new double[0];
+    private double[] srcShareA = new double[0];
+    private double[] loadShareA = new double[0];
+    // 優先度段（PowerPriority.ordinal()）と段ごとの配分
+    private int[] srcTier = new int[0];
+    private int[] loadTier = new int[0];
+    private final TierAllocator srcTiers = new TierAllocator();
+    private final TierAllocator loadTiers = new TierAllocator();
+    private final double[] lastLoadFill = new double[PowerPriority.VALUES.length];
+    private double snapMaxVoltage = 0.0;
+    private boolean snapActive = false;
+    // 物理ソルバ用: 端点番号・電源の起電力と内部抵抗・負荷コンダクタンス、解いた端点電位
+    private int[] srcTerm = new int[0];
+    private int[] loadTerm = new int[0];
+    private double[] srcEmfV = new double[0];
+    private double[] srcROhm = new double[0];
+    private double[] loadG = new double[0];
+    private double[] srcNodeV = new double[0];
+    private double[] loadNodeV = new double[0];
+    private boolean snapPhysical = false;
+    // 開閉する辺（resolve で集める）と、その tick の通過電流
+    private ISwitchableEdge[] switches = new ISwitchableEdge[0];
+    private int[] switchTerm = new int[0];
+    private int switchCount = 0;
+    private double[] switchA = new double[0];
+    // スイッチごとの側: 端点番号 -> スイッチ端点を除いたときの成分番号（スイッチ自身は -1。端点が無ければ null）
+    private int[][] switchSide = new int[0][];
+    private int[] switchSideCount = new int[0];
+    private double[] sideNetA = new double[0];
+
+    // ---- 解決済みノード参照 ----
+    //   rebuild 後の最初の prepare で 1 回だけ level.getBlockEntity で引き、平らな配列に持つ
+    //   以後の tick は配列を回すだけ。撤去 / チャンクアンロード / 隣接変化で invalidateResolved() される
+    //   導体は resolved に入れず、縮約グラフ（graph）にだけ反映する
+    private IElectricNode[] resolved = new IElectricNode[0];
+    // resolved[i] の縮約グラフ上の端点番号
+    private int[] resolvedTerm = new int[0];
+    private int resolvedCount = 0;
+    private boolean resolvedValid = false;
+    private ContractedGraph graph;
+    // 物理ソルバ（モード on の間だけ。resolve のたびに作り直す）と直近の結果
+    private NodalSolver solver;
+    // 蓄電プール（蓄電ノードがなければ null）
+    private EnergyPool pool;
+    private boolean solverSeeded = false;
+    private boolean potentialsValid = false;
+    private int lastSolveIterations = 0;
+    private long lastSolveNanos = 0L;
+    private double lastLossJ = 0.0;
+
+    // 直近 tick の母線電圧（現状のソルバはネットワーク内一様。非稼働なら 0）
+    private double lastBusVoltage = 0.0;
+
+    // ---- 定常キャッシュ ----
+    //   untrackedCount: 容量変化を報告しないノード数（resolve で数える。0 のときだけキャッシュを使う）
+    //   capacityDirty:  報告があった（apply 相で BE から立てられることもあるので volatile）
+    private int untrackedCount = 0;
+    private volatile boolean capacityDirty = true;
+    private boolean steadyValid = false;
+    private boolean steadyActive = false;
+    private boolean snapReused = false;
+    private long steadyTicks = 0;
+    private long steadyHits = 0;
+    private long capacityChanges = 0;
+
+    /** 次の prepare でノード参照を引き直させる */
+    public void invalidateResolved() {
+        resolvedValid = false;
+    }
+
+    /** ノードの容量（電圧・最大電流・優先度）が変わった。次の prepare で読み直す */
+    public void markCapacityDirty() {
+        capacityDirty = true;
+    }
+
+    /** 定常キャッシュの統計: {tick 数, 使い回した tick 数, 容量変化の報告で読み直した回数} */
+    public long[] getSteadyStateStats() {
+        return new long[]{steadyTicks, steadyHits, capacityChanges};
+    }
+
+    private void resolve(Level level) {
+        if (resolved.length < nodes.size()) {
+            resolved = new IElectricNode[nodes.size()];
+            resolvedTerm = new int[nodes.size()];
+        }
+        LongArrayList resolvedKeys = new LongArrayList();
+        // 前のプールは解散して取り分をノードへ戻し、改めて集める
+        if (pool != null) pool.release();
+        pool = null;
+        long poolKey = 0L;
+        int n = 0;
+        LongOpenHashSet conductors = new LongOpenHashSet();
+        Long2DoubleOpenHashMap condR = new Long2DoubleOpenHashMap();
+        Long2DoubleOpenHashMap condCap = new Long2DoubleOpenHashMap();
+        Long2ByteOpenHashMap masks = new Long2ByteOpenHashMap();
+        masks.defaultReturnValue(NetworkGraph.ALL_SIDES);
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (LongIterator it = nodes.iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            cursor.set(key);
+            // 未ロードのチャンクは引かない（同期ロードを避ける。ロード時の mark で引き直される）
+            if (!level.isLoaded(cursor)) continue;
+            if (level.getBlockEntity(cursor) instanceof IElectricNode node && !((BlockEntity) node).isRemoved()) {
+                masks.put(key, NetworkGraph.sideMask((BlockEntity) node));
+                if (node.isConductor()) {
+                    conductors.add(key);
+                    condR.put(key, node.getInternalResistanceOhm());
+                    condCap.put(key, node.getMaxIntakeA());
+                } else if (node instanceof IPooledStorage storage) {
+                    if (pool == null) {
+                        pool = new EnergyPool(cursor.immutable(), this);
+                        poolKey = key;
+                    }
+                    pool.absorb(storage);
+                } else {
+                    resolved[n++] = node;
+                    resolvedKeys.add(key);
+                }
             }
         }
-        return out;
+        if (pool != null) {
+            // プールは先頭の蓄電ノードの位置の端点として扱う
+            resolved[n++] = pool;
+            resolvedKeys.add(poolKey);
+        }
+        graph = ContractedGraph.build(nodes, masks, GRAPH.rule(), conductors::contains, condR, condCap);
+        for (int i = 0; i < n; i++) resolvedTerm[i] = graph.terminalIndex(resolvedKeys.getLong(i));
+        n = resolvePorts(level, masks, n);
+        untrackedCount = 0;
+        for (int i = 0; i < n; i++) if (!resolved[i].reportsCapacityChanges()) untrackedCount++;
+        steadyValid = false;
+        switchCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (!(resolved[i] instanceof ISwitchableEdge sw)) continue;
+            if (switches.length <= switchCount) {
+                switches = Arrays.copyOf(switches, switchCount * 2 + 1);
+                switchTerm = Arrays.copyOf(switchTerm, switchCount * 2 + 1);
+                switchA = new double[switches.length];
+            }
+            switches[switchCount] = sw;
+            switchTerm[switchCount++] = resolvedTerm[i];
+        }
+        Arrays.fill(switches, switchCount, switches.length, null);
+        buildSwitchSides();
+        solver = null;
+        potentialsValid = false;
+        // 古い参照を残さない（GC のため）
+        Arrays.fill(resolved, n, Math.max(n, resolvedCount), null);
+        resolvedCount = n;
+        resolvedValid = true;
     }
 
-    private static Set<BlockPos> flood(Level level, BlockPos start) {
-        Set<BlockPos> visited = new HashSet<>();
-        Deque<BlockPos> q = new ArrayDeque<>();
-        q.add(start);
-        while (!q.isEmpty()) {
-            BlockPos p = q.poll();
-            if (!visited.add(p)) continue;
-            BlockEntity be = level.getBlockEntity(p);
-            if (!(be instanceof IElectricNode)) continue;
-            for (BlockPos n : neighbors(p)) {
-                if (!visited.contains(n)) {
-                    BlockEntity nb = level.getBlockEntity(n);
-                    if (nb instanceof IElectricNode) q.add(n);
+    // 境界の変圧器: ノードの接続面の先にある IVoltageCoupler を、その面に応じて入力 / 出力ポートとして resolved に足す
+    //   縮約された導体に接していれば、その辺の端点 A に付ける
+    private int resolvePorts(Level level, Long2ByteOpenHashMap masks, int n) {
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (LongIterator it = masks.keySet().iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            byte mask = masks.get(key);
+            for (Direction d : Direction.values()) {
+                if ((mask & NetworkGraph.bit(d)) == 0) continue;
+                long nk = BlockPos.offset(key, d);
+                if (nodes.contains(nk)) continue;
+                cursor.set(nk);
+                if (!level.isLoaded(cursor)) continue;
+                if (!(level.getBlockEntity(cursor) instanceof IVoltageCoupler c) || c.isDetached()) continue;
+                Direction face = d.getOpposite();
+                boolean input = face == c.getInputSide();
+                if (!input && face != c.getOutputSide()) continue;
+                int t = graph.terminalIndex(key);
+                if (t < 0) {
+                    int e = graph.locate(key);
+                    if (e < 0) continue;
+                    t = graph.edgeA(e);
+                }
+                if (resolved.length <= n) {
+                    resolved = Arrays.copyOf(resolved, n * 2 + 1);
+                    resolvedTerm = Arrays.copyOf(resolvedTerm, n * 2 + 1);
                 }
+                resolved[n] = new CouplerPort(c, cursor.immutable(), input);
+                resolvedTerm[n++] = t;
             }
         }
-        return visited;
+        return n;
     }
 
-    private static List<BlockPos> neighbors(BlockPos p) {
-        return List.of(p.above(), p.below(), p.north(), p.south(), p.east(), p.west());
+    // スイッチごとに、その端点を除いた縮約グラフの成分を数える（resolve で 1 回。O(スイッチ数 x 端点・辺数)）
+    private void buildSwitchSides() {
+        if (switchSide.length < switches.length) {
+            switchSide = new int[switches.length][];
+            switchSideCount = new int[switches.length];
+        }
+        Arrays.fill(switchSide, null);
+        ContractedGraph g = graph;
+        if (switchCount == 0 || g == null) return;
+        int n = g.terminalCount(), m = g.edgeCount();
+        int[] rowPtr = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            if (g.edgeA(e) == g.edgeB(e)) continue;
+            rowPtr[g.edgeA(e) + 1]++;
+            rowPtr[g.edgeB(e) + 1]++;
+        }
+        for (int i = 0; i < n; i++) rowPtr[i + 1] += rowPtr[i];
+        int[] adj = new int[rowPtr[n]];
+        int[] fill = Arrays.copyOf(rowPtr, n);
+        for (int e = 0; e < m; e++) {
+            int a = g.edgeA(e), b = g.edgeB(e);
+            if (a == b) continue;
+            adj[fill[a]++] = b;
+            adj[fill[b]++] = a;
+        }
+        int[] queue = new int[n];
+        int maxSides = 0;
+        for (int s = 0; s < switchCount; s++) {
+            int cut = switchTerm[s];
+            if (cut < 0) continue;
+            int[] label = new int[n];
+            Arrays.fill(label, -1);
+            int sides = 0;
+            for (int start = 0; start < n; start++) {
+                if (start == cut || label[start] >= 0) continue;
+                int head = 0, tail = 0;
+                queue[tail++] = start;
+                label[start] = sides;
+                while (head < tail) {
+                    int t = queue[head++];
+                    for (int k = rowPtr[t], end = rowPtr[t + 1]; k < end; k++) {
+                        int o = adj[k];
+                        if (o == cut || label[o] >= 0) continue;
+                        label[o] = sides;
+                        queue[tail++] = o;
+                    }
+                }
+                sides++;
+            }
+            switchSide[s] = label;
+            switchSideCount[s] = sides;
+            maxSides = Math.max(maxSides, sides);
+        }
+        if (sideNetA.length < maxSides) sideNetA = new double[maxSides];
+    }
+
+    // 比例配分でのスイッチ s の通過電流: スイッチを除いた各側の正味の電流（負荷 - 電源）の絶対値の和の半分。
+    // 2 側ならちょうど片側の正味の電流。輪の中のスイッチ（1 側）は経路が分からないので 0
+    private double sideThroughCurrent(int s) {
+        int[] side = switchSide[s];
+        if (side == null) return 0.0;
+        int k = switchSideCount[s];
+        Arrays.fill(sideNetA, 0, k, 0.0);
+        for (int i = 0; i < snapLoadCount; i++) {
+            int t = loadTerm[i];
+            if (t >= 0 && side[t] >= 0) sideNetA[side[t]] += loadShareA[i];
+        }
+        for (int i = 0; i < snapSourceCount; i++) {
+            int t = srcTerm[i];
+            if (t >= 0 && side[t] >= 0) sideNetA[side[t]] -= srcShareA[i];
+        }
+        double sum = 0.0;
+        for (int c = 0; c < k; c++) sum += Math.abs(sideNetA[c]);
+        return sum * 0.5;
     }
 
-    public void tick(Level level) {
+    // スイッチ s がこの tick に開いた: 各側を独立に、いまの配分を上限として優先度段で突き合わせ直す
+    // （側をまたぐ分は配られなくなる）。切れた側の負荷・電源は側の中で釣り合う分だけ残る
+    private void splitShares(int s) {
+        int[] side = switchSide[s];
+        if (side == null) return;
+        for (int c = 0, k = switchSideCount[s]; c < k; c++) {
+            srcTiers.clear();
+            loadTiers.clear();
+            for (int i = 0; i < snapLoadCount; i++) {
+                if (loadTerm[i] >= 0 && side[loadTerm[i]] == c) loadTiers.add(loadTier[i], loadShareA[i]);
+            }
+            for (int i = 0; i < snapSourceCount; i++) {
+                if (srcTerm[i] >= 0 && side[srcTerm[i]] == c) srcTiers.add(srcTier[i], srcShareA[i]);
+            }
+            double a = Math.min(srcTiers.total(), loadTiers.total());
+            loadTiers.allocate(a);
+            srcTiers.allocate(a);
+            for (int i = 0; i < snapLoadCount; i++) {
+                if (loadTerm[i] >= 0 && side[loadTerm[i]] == c) loadShareA[i] *= loadTiers.fraction(loadTier[i]);
+            }
+            for (int i = 0; i < snapSourceCount; i++) {
+                if (srcTerm[i] >= 0 && side[srcTerm[i]] == c) srcShareA[i] *= srcTiers.fraction(srcTier[i]);
+            }
+        }
+    }
+
+    @Override
+    public void prepare(Level level) {
+        steadyTicks++;
+        snapReused = false;
+        if (steadyValid && resolvedValid && untrackedCount == 0 && !capacityDirty) {
+            // 定常: 前 tick の配分をそのまま使う
+            steadyHits++;
+            snapReused = true;
+            snapActive = steadyActive;
+            return;
+        }
+        if (capacityDirty) {
+            capacityDirty = false;
+            if (steadyValid) capacityChanges++;
+        }
+        steadyValid = false;
+        int prevNs = snapSourceCount, prevNl = snapLoadCount;
+        snapSourceCount = snapLoadCount = 0;
+        snapActive = false;
+        lastBusVoltage = 0.0;
         if (nodes.isEmpty()) return;
 
-        List<IElectricNode> sources = new ArrayList<>();
-        List<IElectricNode> loads = new ArrayList<>();
-        for (BlockPos p : nodes) {
-            BlockEntity be = level.getBlockEntity(p);
-            if (!(be instanceof IElectricNode n)) continue;
-            if (n.getMaxOutputA() > 0.0) sources.add(n);
-            if (n.getMaxIntakeA() > 0.0) loads.add(n);
+        double maxV = 0.0;
+        if (!resolvedValid) resolve(level);
+        int ns = 0, nl = 0;
+        for (int i = 0; i < resolvedCount; i++) {
+            IElectricNode n = resolved[i];
+            // 取りこぼした撤去（mark しないノード等）の保険: 使わずに次 tick で引き直す
+            if (isDetached(n)) { resolvedValid = false; continue; }
+            if (n.getMaxOutputA() > 0.0) {
+                if (snapSources.length <= ns) {
+                    snapSources = Arrays.copyOf(snapSources, Math.max(8, ns * 2));
+                    srcTerm = Arrays.copyOf(srcTerm, snapSources.length);
+                }
+                snapSources[ns] = n;
+                srcTerm[ns++] = resolvedTerm[i];
+                maxV = Math.max(maxV, n.getVoltageV());
+            }
+            if (n.getMaxIntakeA() > 0.0) {
+                if (snapLoads.length <= nl) {
+                    snapLoads = Arrays.copyOf(snapLoads, Math.max(8, nl * 2));
+                    loadTerm = Arrays.copyOf(loadTerm, snapLoads.length);
+                }
+                snapLoads[nl] = n;
+                loadTerm[nl++] = resolvedTerm[i];
+            }
+        }
+        // 前 tick より減った分の参照は残さない（GC のため）
+        if (prevNs > ns) Arrays.fill(snapSources, ns, prevNs, null);
+        if (prevNl > nl) Arrays.fill(snapLoads, nl, prevNl, null);
+        snapSourceCount = ns;
+        snapLoadCount = nl;
+        if (ns == 0 || nl == 0) return;
+
+        if (srcCapA.length < ns) { srcCapA = new double[ns]; srcShareA = new double[ns]; srcTier = new int[ns]; }
+        if (loadCapA.length < nl) { loadCapA = new double[nl]; loadShareA = new double[nl]; loadTier = new int[nl]; }
+        for (int i = 0; i < ns; i++) {
+            IElectricNode src = snapSources[i];
+            srcCapA[i] = src.getMaxOutputA();
+            srcTier[i] = src.getPowerPriority().ordinal();
+        }
+        for (int i = 0; i < nl; i++) {
+            IElectricNode load = snapLoads[i];
+            loadCapA[i] = load.getMaxIntakeA();
+            loadTier[i] = load.getPowerPriority().ordinal();
+        }
+        snapMaxVoltage = maxV;
+
+        snapPhysical = nodalSolver && graph != null && maxV > 0.0;
+        if (snapPhysical) {
+            if (solver == null) {
+                solver = new NodalSolver(graph);
+                solverSeeded = false;
+            }
+            if (srcEmfV.length < ns) { srcEmfV = new double[ns]; srcROhm = new double[ns]; srcNodeV = new double[ns]; }
+            if (loadG.length < nl) { loadG = new double[nl]; loadNodeV = new double[nl]; }
+            for (int i = 0; i < ns; i++) {
+                IElectricNode src = snapSources[i];
+                srcEmfV[i] = src.getVoltageV();
+                srcROhm[i] = Math.max(NodalSolver.MIN_RESISTANCE_OHM, src.getInternalResistanceOhm());
+            }
+            // 負荷は「最高電源電圧で定格電流を引く」抵抗とみなす（電圧が下がれば電流も下がる）
+            for (int i = 0; i < nl; i++) loadG[i] = loadCapA[i] / maxV;
+        } else {
+            potentialsValid = false;
+        }
+        snapActive = true;
+    }
+
+    @Override
+    public void solve() {
+        if (!snapActive || snapReused) return;
+        if (snapPhysical) {
+            solvePhysical();
+            return;
+        }
+        int ns = snapSourceCount, nl = snapLoadCount;
+        srcTiers.clear();
+        loadTiers.clear();
+        for (int i = 0; i < ns; i++) srcTiers.add(srcTier[i], srcCapA[i]);
+        for (int i = 0; i < nl; i++) loadTiers.add(loadTier[i], loadCapA[i]);
+        double supplyA = Math.min(srcTiers.total(), loadTiers.total());
+        if (supplyA <= 0.0) {
+            snapActive = false;
+            return;
+        }
+        dispatch(supplyA, loadCapA, srcCapA);
+        // 比例配分は経路を持たないので、スイッチの両側の過不足から通過電流を求める
+        for (int i = 0; i < switchCount; i++) switchA[i] = sideThroughCurrent(i);
+    }
+
+    // -------------------------
+    // 物理ソルバ
+    //   1) 電源（起電力 E > 0）を Norton 等価、負荷をコンダクタンスとして注入し、端点電位を CG で解く
+    //   2) 電源電流 (E - v) / r、負荷電流 g v を求める
+    //   3) 定格を越える電源があれば全体を同じ比率で絞る（KCL を保ったまま）
+    //   4) 損失は辺の I²R の和（絞った比率の 2 乗で縮む）
+    // -------------------------
+    private void solvePhysical() {
+        NodalSolver s = solver;
+        int ns = snapSourceCount, nl = snapLoadCount;
+        long t0 = System.nanoTime();
+        if (!solverSeeded) {
+            s.seed(snapMaxVoltage);
+            solverSeeded = true;
+        }
+        s.clearInjections();
+        for (int i = 0; i < ns; i++) {
+            if (srcTerm[i] < 0 || srcEmfV[i] <= 0.0) continue;
+            double g = 1.0 / srcROhm[i];
+            s.addShunt(srcTerm[i], g, srcEmfV[i] * g);
+        }
+        for (int i = 0; i < nl; i++) {
+            if (loadTerm[i] >= 0) s.addShunt(loadTerm[i], loadG[i], 0.0);
+        }
+        lastSolveIterations = s.solve(SOLVER_TOLERANCE, SOLVER_MAX_ITERATIONS);
+
+        // 解いた電流を「電源が出せる量」「負荷が引きたい量」とみなし、優先度段で突き合わせる
+        //   電源が定格で頭打ちになる（不足）と、下の段の負荷から削られる
+        srcTiers.clear();
+        loadTiers.clear();
+        for (int i = 0; i < ns; i++) {
+            if (srcTerm[i] < 0 || srcEmfV[i] <= 0.0) {
+                srcShareA[i] = 0.0;
+                srcNodeV[i] = 0.0;
+                continue;
+            }
+            double vt = s.potential(srcTerm[i]);
+            srcShareA[i] = Math.min(srcCapA[i], Math.max(0.0, (srcEmfV[i] - vt) / srcROhm[i]));
+            srcNodeV[i] = vt;
+            srcTiers.add(srcTier[i], srcShareA[i]);
+        }
+        for (int i = 0; i < nl; i++) {
+            double vt = loadTerm[i] < 0 ? 0.0 : s.potential(loadTerm[i]);
+            loadNodeV[i] = vt;
+            loadShareA[i] = Math.min(loadCapA[i], loadG[i] * vt);
+            loadTiers.add(loadTier[i], loadShareA[i]);
         }
-        if (sources.isEmpty() || loads.isEmpty()) return;
+        double demandA = loadTiers.total();
+        double deliveredA = Math.min(srcTiers.total(), demandA);
+        dispatch(deliveredA, loadShareA, srcShareA);
+        double scale = demandA > 0.0 ? deliveredA / demandA : 0.0;
+        lastLossJ = s.lossJ() * scale * scale;
+        for (int i = 0; i < switchCount; i++) switchA[i] = switchTerm[i] < 0 ? 0.0 : s.throughCurrent(switchTerm[i]) * scale;
+        potentialsValid = true;
+        lastSolveNanos = System.nanoTime() - t0;
+    }
 
-        double maxVoltage = sources.stream().mapToDouble(IElectricNode::getVoltageV).max().orElse(0.0);
-        double totalSupplyA = sources.stream().mapToDouble(IElectricNode::getMaxOutputA).sum();
-        double totalDemandA = loads.stream().mapToDouble(IElectricNode::getMaxIntakeA).sum();
-        double supplyA = Math.min(totalSupplyA, totalDemandA);
-        if (supplyA <= 0.0) return;
+    // 上の段から順に supplyA を配る（負荷・電源とも同じ手順）。want / have は各ノードの上限で、結果は loadShareA / srcShareA
+    private void dispatch(double supplyA, double[] want, double[] have) {
+        int ns = snapSourceCount, nl = snapLoadCount;
+        loadTiers.allocate(supplyA);
+        srcTiers.allocate(supplyA);
+        for (int i = 0; i < nl; i++) loadShareA[i] = want[i] * loadTiers.fraction(loadTier[i]);
+        for (int i = 0; i < ns; i++) srcShareA[i] = have[i] * srcTiers.fraction(srcTier[i]);
+        loadTiers.copyFractions(lastLoadFill);
+    }
 
-        for (IElectricNode load : loads) {
-            double share = supplyA * (load.getMaxIntakeA() / Math.max(1e-9, totalDemandA));
-            load.pushPullCurrent(level, asBlockPos(load), maxVoltage, +share);
+    /** 直近 tick の負荷側の段ごとの充足率（PowerPriority の順。0..1） */
+    public double[] getLastLoadFill() {
+        return lastLoadFill.clone();
+    }
+
+    @Override
+    public void apply(Level level) {
+        // 次 tick の使い回し用に、この tick の結果（solve で非稼働になったかも含めて）を覚える
+        steadyActive = snapActive;
+        steadyValid = resolvedValid;
+        if (!snapActive) return;
+        lastBusVoltage = snapMaxVoltage;
+        // 先にスイッチへ通過電流を知らせる。トリップしたら、この tick の配分を側ごとに配り直してから反映する
+        //   （グラフからの切り離しは次 tick の再構築相。配り直した配分は使い回さない）
+        for (int i = 0; i < switchCount; i++) {
+            boolean wasClosed = switches[i].isClosed();
+            switches[i].onThroughFlow(level, switchA[i]);
+            if (wasClosed && !switches[i].isClosed()) {
+                splitShares(i);
+                steadyValid = false;
+            }
         }
-        for (IElectricNode src : sources) {
-            double share = supplyA * (src.getMaxOutputA() / Math.max(1e-9, totalSupplyA));
-            src.pushPullCurrent(level, asBlockPos(src), maxVoltage, -share);
+        // 電源から先に引き、実際に出せた電流（pushPullCurrent の戻り値）の割合で負荷への配分を縮める
+        //   上限の報告が遅れた電源があっても、出せなかった分を負荷へ渡さない。足りなければ次 tick は読み直す
+        double plannedA = 0.0, suppliedA = 0.0;
+        for (int i = 0; i < snapSourceCount; i++) {
+            if (srcShareA[i] <= 0.0) continue;
+            IElectricNode src = snapSources[i];
+            double v = snapPhysical ? srcNodeV[i] : snapMaxVoltage;
+            plannedA += srcShareA[i];
+            suppliedA += Math.max(0.0, -src.pushPullCurrent(level, asBlockPos(src), v, -srcShareA[i]));
+        }
+        double scale = 1.0;
+        if (suppliedA < plannedA) {
+            scale = suppliedA / plannedA;
+            steadyValid = false;
+        }
+        for (int i = 0; i < snapLoadCount; i++) {
+            IElectricNode load = snapLoads[i];
+            double v = snapPhysical ? loadNodeV[i] : snapMaxVoltage;
+            load.pushPullCurrent(level, asBlockPos(load), v, +loadShareA[i] * scale);
         }
     }
 
     public void onRebuilt(Level level) {}
 
+    // -------------------------
+    // 表示用: 任意ノードの電圧を問い合わせ時に求める（毎 tick は計算しない）
+    //   端点はその電位、縮約された導体は両端の電位を抵抗比で補間する
+    // -------------------------
+    public double voltageAt(long key) {
+        ContractedGraph g = graph;
+        if (g == null) return 0.0;
+        int t = g.terminalIndex(key);
+        if (t >= 0) return terminalPotential(t);
+        int e = g.locate(key);
+        if (e < 0) return 0.0;
+        double va = terminalPotential(g.edgeA(e));
+        double vb = terminalPotential(g.edgeB(e));
+        return va + (vb - va) * g.fractionAlong(e, key);
+    }
+
+    // 端点の電位。物理ソルバの解があればそれ、なければ（比例配分はネットワーク内一様なので）母線電圧
+    private double terminalPotential(int t) {
+        NodalSolver s = solver;
+        if (potentialsValid && s != null && t >= 0 && t < s.size()) return s.potential(t);
+        return lastBusVoltage;
+    }
+
+    /** 物理ソルバの直近 tick の {CG 反復回数, 所要ナノ秒}（比例配分モードでは直近に解いたときの値） */
+    public long[] getLastSolveStats() {
+        return new long[]{lastSolveIterations, lastSolveNanos};
+    }
+
+    /** 物理ソルバの直近 tick の送電損失（I²R、ジュール） */
+    public double getLastLossJ() {
+        return lastLossJ;
+    }
+
+    /** 蓄電プールの {蓄電量[J], 容量[J]}（蓄電ノードがなければ {0, 0}） */
+    public double[] getPoolStorage() {
+        EnergyPool p = pool;
+        return p == null ? new double[]{0.0, 0.0} : new double[]{p.getStoredJ(), p.getCapacityJ()};
+    }
+
+    /** 縮約後の {端点数, 辺数}（未解決なら {0, 0}） */
+    public int[] getContractedSize() {
+        ContractedGraph g = graph;
+        return g == null ? new int[]{0, 0} : new int[]{g.terminalCount(), g.edgeCount()};
+    }
+
+    private static boolean isDetached(IElectricNode n) {
+        if (n instanceof CouplerPort p) return p.coupler.isDetached();
+        if (n instanceof EnergyPool) return false; // 抜けたノードは leave 済み（mark で resolve し直される）
+        return ((BlockEntity) n).isRemoved();
+    }
+
     private static BlockPos asBlockPos(IElectricNode n) {
         if (n instanceof BlockEntity be) return be.getBlockPos();
+        if (n instanceof CouplerPort p) return p.pos;
+        if (n instanceof EnergyPool p) return p.anchor();
         throw new IllegalStateException("IElectricNode must be BlockEntity");
     }
-
-    // getAllBlockEntities: FluidNetwork と共通の高速経路/フォールバックを使う
-    private static Iterable<BlockEntity> getAllBlockEntities(ServerLevel level) {
-        return com.infinitymax.industry.fluid.FluidNetwork.getAllBlockEntities(level);
-    }
 }
\ No newline at end of file
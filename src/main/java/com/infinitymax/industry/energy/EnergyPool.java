@@ -0,0 +1,133 @@
+package com.infinitymax.industry.energy;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 電力ネットワーク 1 つ分の仮想蓄電プール
+ *
+ * - ネットワーク内の IPooledStorage をまとめて 1 個の IElectricNode（優先度 STORAGE の負荷兼電源）として配分に出す
+ * - 充放電は storedJ を 1 回増減するだけ（O(1)。加入ノード数に依らない）
+ * - 各ノードの取り分は容量比: storedJ * cap_i / capacityJ。保存時は shareOf で読むだけ、
+ *   撤去時（leave）と解散時（release）だけノードへ書き戻す
+ * - 容量（充電・放電の上限）は充放電のたびに見直し、前回報告した値から動いたときだけ所属ネットワークへ報告する
+ *   （定格で頭打ちのまま充放電している間は定常キャッシュが効く）
+ * - leave は取り分ごと抜くので、残りのノードの取り分は変わらない（古いプールが残っていても矛盾しない）
+ */
+public final class EnergyPool implements IElectricNode {
+
+    private final BlockPos anchor;
+    private final ElectricNetwork owner;
+    // 最後に owner へ報告した容量（NaN = 未報告）
+    private double reportedIntakeA = Double.NaN;
+    private double reportedOutputA = Double.NaN;
+    private final List<IPooledStorage> members = new ArrayList<>();
+    private double storedJ = 0.0;
+    private double capacityJ = 0.0;
+    private double chargeA = 0.0;
+    private double dischargeA = 0.0;
+    private double voltageV = 0.0;
+
+    EnergyPool(BlockPos anchor, ElectricNetwork owner) {
+        this.anchor = anchor;
+        this.owner = owner;
+    }
+
+    BlockPos anchor() {
+        return anchor;
+    }
+
+    /** ノードを加入させる（別のプールに入っていれば取り分ごと移す） */
+    void absorb(IPooledStorage m) {
+        EnergyPool old = m.getPool();
+        if (old != null) old.leave(m);
+        storedJ += m.getOwnStoredJ();
+        capacityJ += m.getCapacityJ();
+        chargeA += m.getMaxChargeA();
+        dischargeA += m.getMaxDischargeA();
+        voltageV = Math.max(voltageV, m.getNominalVoltageV());
+        members.add(m);
+        m.setPool(this);
+    }
+
+    /** ノードを抜く（撤去・アンロード時）。取り分をノードへ書き戻し、プールからも引く */
+    public void leave(IPooledStorage m) {
+        if (m.getPool() != this || !members.remove(m)) return;
+        double share = shareOf(m);
+        storedJ = Math.max(0.0, storedJ - share);
+        capacityJ = Math.max(0.0, capacityJ - m.getCapacityJ());
+        chargeA = Math.max(0.0, chargeA - m.getMaxChargeA());
+        dischargeA = Math.max(0.0, dischargeA - m.getMaxDischargeA());
+        m.setOwnStoredJ(share);
+        m.setPool(null);
+    }
+
+    /** 解散（ネットワークの resolve 前）。全ノードへ取り分を書き戻す */
+    void release() {
+        for (IPooledStorage m : members) {
+            m.setOwnStoredJ(shareOf(m));
+            m.setPool(null);
+        }
+        members.clear();
+        storedJ = capacityJ = chargeA = dischargeA = 0.0;
+    }
+
+    /** ノードの取り分[J]（読むだけ。保存時用） */
+    public double shareOf(IPooledStorage m) {
+        return capacityJ <= 0.0 ? 0.0 : storedJ * (m.getCapacityJ() / capacityJ);
+    }
+
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    public int memberCount() { return members.size(); }
+
+    public double getStoredJ() { return storedJ; }
+
+    public double getCapacityJ() { return capacityJ; }
+
+    // ===== IElectricNode =====
+    @Override public double getVoltageV() { return voltageV; }
+    // 並列接続: 加入数が多いほど下がる
+    @Override public double getInternalResistanceOhm() { return 0.01 / Math.max(1, members.size()); }
+
+    @Override
+    public double getMaxIntakeA() {
+        if (voltageV <= 0.0) return 0.0;
+        return Math.min(chargeA, (capacityJ - storedJ) * PowerUnits.TICK_PER_SECOND / voltageV);
+    }
+
+    @Override
+    public double getMaxOutputA() {
+        if (voltageV <= 0.0) return 0.0;
+        return Math.min(dischargeA, storedJ * PowerUnits.TICK_PER_SECOND / voltageV);
+    }
+
+    @Override public PowerPriority getPowerPriority() { return PowerPriority.STORAGE; }
+    @Override public boolean reportsCapacityChanges() { return true; }
+
+    @Override
+    public double pushPullCurrent(Level level, BlockPos pos, double requestedVoltageV, double requestedCurrentA) {
+        double v = requestedVoltageV > 0.0 ? requestedVoltageV : voltageV;
+        double j = PowerUnits.powerW(v, requestedCurrentA) / PowerUnits.TICK_PER_SECOND;
+        storedJ = Math.max(0.0, Math.min(capacityJ, storedJ + j));
+        reportCapacity();
+        return requestedCurrentA;
+    }
+
+    // 上限が残量側に切り替わった / 残量側で動いたときだけ報告する
+    private void reportCapacity() {
+        double in = getMaxIntakeA(), out = getMaxOutputA();
+        if (!IElectricNode.capacityMoved(in, reportedIntakeA) && !IElectricNode.capacityMoved(out, reportedOutputA)) return;
+        reportedIntakeA = in;
+        reportedOutputA = out;
+        owner.markCapacityDirty();
+    }
+
+    @Override
+    public void markDirtyGraph() {}
+}
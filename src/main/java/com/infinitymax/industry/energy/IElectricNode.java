@@ -23,4 +23,31 @@ public interface IElectricNode {
 
     /** ネットワーク再スキャン要求（隣接が変化した時に呼ぶ） */
     void markDirtyGraph();
+
+    /**
+     * true なら電流を作りも消費もしない導体（ケーブル等）。
+     * ネットワークは次数 2 の導体の連なりを 1 本の辺に縮約し、配分計算の入力から外す。
+     * 表示電圧などは問い合わせ時にネットワークから補間する。
+     */
+    default boolean isConductor() { return false; }
+
+    /**
+     * 配分の優先度。負荷としては受電の順、電源としては給電の順（安い順）。
+     * ネットワークは段ごとに上から満たし、同じ段の中は定格に比例して配る。
+     */
+    default PowerPriority getPowerPriority() { return PowerPriority.NORMAL; }
+
+    /**
+     * true なら、電圧・最大電流・優先度が変わるたびに SmartNetworkManager.markElectricCapacityChanged を呼ぶと約束する。
+     * ネットワーク内の全ノードが true で、変化の報告がなければ、ネットワークは前 tick の配分をそのまま使い回す
+     * （容量の読み直しも集計もしない）。false（既定）のノードがあるネットワークは毎 tick 読み直す。
+     * バッファ残量で上限が決まるノード（min(定格, 残量から決まる値)）は、前回報告した値から実際に動いたときだけ
+     * 報告すればよい（定格で頭打ちのまま充放電している間は報告しない。判定は capacityMoved）。
+     */
+    default boolean reportsCapacityChanges() { return false; }
+
+    /** 前回報告した容量 reported から now が動いたか（NaN は未報告。相対 1e-6 未満の揺れは無視） */
+    static boolean capacityMoved(double now, double reported) {
+        return Double.isNaN(reported) || Math.abs(now - reported) > 1e-6 * Math.max(1.0, Math.abs(reported));
+    }
 }
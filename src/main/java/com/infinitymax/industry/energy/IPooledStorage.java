@@ -0,0 +1,31 @@
+package com.infinitymax.industry.energy;
+
+/**
+ * 電力ネットワークのプール（EnergyPool）に預けられる蓄電ノード（BATTERY_BANK / SUPERCONDUCTOR_STORAGE）
+ *
+ * - ネットワークの resolve でプールに加入し、以後の充放電はプール側の 1 変数だけを動かす（ノードごとには配らない）
+ * - プール内の自分の取り分は容量比（EnergyPool.shareOf）。保存・撤去・プール解散のときだけ自分の値へ書き戻す
+ */
+public interface IPooledStorage {
+
+    /** 容量[J] */
+    double getCapacityJ();
+
+    /** プールに入っていないときの自前の蓄電量[J] */
+    double getOwnStoredJ();
+
+    void setOwnStoredJ(double joules);
+
+    /** 充電・放電の最大電流[A] */
+    double getMaxChargeA();
+
+    double getMaxDischargeA();
+
+    /** 公称電圧[V]（放電時の起電力） */
+    double getNominalVoltageV();
+
+    /** 加入中のプール（なければ null） */
+    EnergyPool getPool();
+
+    void setPool(EnergyPool pool);
+}
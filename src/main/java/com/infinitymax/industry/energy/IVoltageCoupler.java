@@ -0,0 +1,50 @@
+package com.infinitymax.industry.energy;
+
+import net.minecraft.core.Direction;
+
+/**
+ * 電圧ドメインの境界になる 2 ポート機器（変圧器など）
+ *
+ * - 電力ネットワークのノードにはならない（ElectricNetwork.GRAPH から外れる）。そのため両側は別ネットワーク（ドメイン）になる
+ * - 入力側の面に接するドメインでは負荷、出力側の面に接するドメインでは電源として振る舞う
+ * - 両ドメインは独立に解かれ、電力は機器の内部バッファを介して 1 tick 遅れで受け渡す（エネルギーは保存、損失は I²R）
+ * - 面や電圧を変えたら markElectricDirty で隣接ドメインに引き直させること
+ */
+public interface IVoltageCoupler {
+
+    /** 受電する面 */
+    Direction getInputSide();
+
+    /** 送電する面 */
+    Direction getOutputSide();
+
+    /** 入力側の定格電圧[V] */
+    double getInputVoltageV();
+
+    /** 出力側の起電力[V] */
+    double getOutputVoltageV();
+
+    /** 巻線の抵抗[Ω]（出力側の内部抵抗として使う） */
+    double getInternalResistanceOhm();
+
+    /** この tick に入力側で受け取れる最大電流[A]（定格とバッファの空きで決まる） */
+    double getInputIntakeA();
+
+    /** この tick に出力側で出せる最大電流[A]（定格とバッファ残量で決まる） */
+    double getOutputMaxA();
+
+    /** 入力側で電流を受け取る。戻り値は実際に受け取った電流[A] */
+    double acceptInput(double voltageV, double currentA);
+
+    /** 出力側から電流を出す。戻り値は実際に出した電流[A] */
+    double drawOutput(double voltageV, double currentA);
+
+    /** 取り外し済みか（撤去・アンロード） */
+    boolean isDetached();
+
+    /** 隣接ドメインへの再評価要求 */
+    void markDirtyGraph();
+
+    /** true なら、ポートの容量（受電・送電の上限）が変わるたびに、その面のドメインへ markElectricCapacityChanged を呼ぶ */
+    default boolean reportsCapacityChanges() { return false; }
+}
@@ -0,0 +1,203 @@
+package com.infinitymax.industry.energy;
+
+import com.infinitymax.industry.network.ContractedGraph;
+
+import java.util.Arrays;
+
+/**
+ * 縮約グラフ上の節点解析（ElectricNetwork の物理ソルバモード用）
+ *
+ * - 未知数は端点の電位。辺（縮約した導体区間）はコンダクタンス 1/R
+ * - 行列はコンダクタンス行列（ラプラシアン）を CSR で持ち、rebuild 時に 1 回だけ作る
+ * - 電源は Norton 等価（内部抵抗 r の並列コンダクタンス + 注入電流 V/r）、負荷は定格から決めたコンダクタンス。
+ *   これらは毎 tick 対角と右辺にだけ足す（行列の形は変わらない）
+ * - 解法は Jacobi 前処理付き共役勾配法。初期値は前 tick の解（warm start）なので、定常に近ければ数反復で収束する
+ * - 作業配列はすべて保持して使い回す（solve で確保しない）
+ * - BE / level には触らない（solve 相から並列に呼ばれてよい）
+ */
+final class NodalSolver {
+
+    // 抵抗 0 の辺・電源の下限（無限大のコンダクタンスを避ける）
+    static final double MIN_RESISTANCE_OHM = 1e-4;
+    // どこにも接地されていない島でも行列が正定値になるよう、全節点に足す漏れコンダクタンス
+    private static final double LEAK_SIEMENS = 1e-9;
+
+    private final int n;
+    // CSR（非対角のみ。値は -g）
+    private final int[] rowPtr;
+    private final int[] col;
+    private final double[] off;
+    // 辺のコンダクタンス和（行列の対角の固定分）
+    private final double[] baseDiag;
+    private final int[] edgeA;
+    private final int[] edgeB;
+    private final double[] edgeR;
+
+    // 毎 tick の対角追加分と右辺
+    private final double[] shunt;
+    private final double[] inject;
+
+    // 解（前 tick の値を warm start に使う）
+    private final double[] v;
+
+    // CG の作業配列
+    private final double[] diag;
+    private final double[] r;
+    private final double[] z;
+    private final double[] p;
+    private final double[] ap;
+
+    private int lastIterations = 0;
+    private double lastResidual = 0.0;
+
+    NodalSolver(ContractedGraph g) {
+        n = g.terminalCount();
+        int m = g.edgeCount();
+        edgeA = new int[m];
+        edgeB = new int[m];
+        edgeR = new double[m];
+        baseDiag = new double[n];
+        int[] deg = new int[n];
+        for (int e = 0; e < m; e++) {
+            int a = g.edgeA(e), b = g.edgeB(e);
+            edgeA[e] = a;
+            edgeB[e] = b;
+            edgeR[e] = Math.max(MIN_RESISTANCE_OHM, g.edgeResistance(e));
+            if (a == b) continue; // 同じ端点に戻る区間は電位差を持たない
+            deg[a]++;
+            deg[b]++;
+        }
+        rowPtr = new int[n + 1];
+        for (int i = 0; i < n; i++) rowPtr[i + 1] = rowPtr[i] + deg[i];
+        col = new int[rowPtr[n]];
+        off = new double[rowPtr[n]];
+        int[] fill = Arrays.copyOf(rowPtr, n);
+        for (int e = 0; e < m; e++) {
+            int a = edgeA[e], b = edgeB[e];
+            if (a == b) continue;
+            double ge = 1.0 / edgeR[e];
+            baseDiag[a] += ge;
+            baseDiag[b] += ge;
+            col[fill[a]] = b;
+            off[fill[a]++] = -ge;
+            col[fill[b]] = a;
+            off[fill[b]++] = -ge;
+        }
+        shunt = new double[n];
+        inject = new double[n];
+        v = new double[n];
+        diag = new double[n];
+        r = new double[n];
+        z = new double[n];
+        p = new double[n];
+        ap = new double[n];
+    }
+
+    int size() { return n; }
+
+    /** 初期電位（rebuild 直後の warm start 用。全節点を同じ値にする） */
+    void seed(double volts) {
+        Arrays.fill(v, volts);
+    }
+
+    /** この tick の電源・負荷をいったん外す */
+    void clearInjections() {
+        Arrays.fill(shunt, 0.0);
+        Arrays.fill(inject, 0.0);
+    }
+
+    /** 端点 t に接地コンダクタンス g[S] と、そこへ流れ込む電流 currentA[A] を足す */
+    void addShunt(int t, double g, double currentA) {
+        shunt[t] += g;
+        inject[t] += currentA;
+    }
+
+    /**
+     * (L + diag(shunt)) v = inject を解く（v は前回の解から始める）
+     * @return 反復回数
+     */
+    int solve(double relTol, int maxIter) {
+        double bNorm = 0.0;
+        for (int i = 0; i < n; i++) {
+            diag[i] = baseDiag[i] + shunt[i] + LEAK_SIEMENS;
+            bNorm += inject[i] * inject[i];
+        }
+        if (bNorm == 0.0) {
+            // 電源なし: 解は 0
+            Arrays.fill(v, 0.0);
+            lastIterations = 0;
+            lastResidual = 0.0;
+            return 0;
+        }
+        double tol2 = relTol * relTol * bNorm;
+
+        multiply(v, ap);
+        double rz = 0.0, rr = 0.0;
+        for (int i = 0; i < n; i++) {
+            r[i] = inject[i] - ap[i];
+            z[i] = r[i] / diag[i];
+            p[i] = z[i];
+            rz += r[i] * z[i];
+            rr += r[i] * r[i];
+        }
+        int it = 0;
+        while (rr > tol2 && it < maxIter) {
+            multiply(p, ap);
+            double pAp = 0.0;
+            for (int i = 0; i < n; i++) pAp += p[i] * ap[i];
+            if (pAp <= 0.0) break;
+            double alpha = rz / pAp;
+            double rzNext = 0.0;
+            rr = 0.0;
+            for (int i = 0; i < n; i++) {
+                v[i] += alpha * p[i];
+                r[i] -= alpha * ap[i];
+                z[i] = r[i] / diag[i];
+                rzNext += r[i] * z[i];
+                rr += r[i] * r[i];
+            }
+            double beta = rzNext / rz;
+            rz = rzNext;
+            for (int i = 0; i < n; i++) p[i] = z[i] + beta * p[i];
+            it++;
+        }
+        lastIterations = it;
+        lastResidual = Math.sqrt(rr / bNorm);
+        return it;
+    }
+
+    private void multiply(double[] x, double[] out) {
+        for (int i = 0; i < n; i++) {
+            double s = diag[i] * x[i];
+            for (int k = rowPtr[i], end = rowPtr[i + 1]; k < end; k++) s += off[k] * x[col[k]];
+            out[i] = s;
+        }
+    }
+
+    double potential(int t) { return v[t]; }
+
+    /** 辺 e を A -> B 向きに流れる電流[A] */
+    double edgeCurrent(int e) {
+        return (v[edgeA[e]] - v[edgeB[e]]) / edgeR[e];
+    }
+
+    /** 注入のない端点 t を通り抜ける電流[A]（接続辺の電流の絶対値の和の半分。2 端子のスイッチならその電流そのもの） */
+    double throughCurrent(int t) {
+        double s = 0.0;
+        for (int k = rowPtr[t], end = rowPtr[t + 1]; k < end; k++) s += Math.abs(off[k] * (v[t] - v[col[k]]));
+        return s * 0.5;
+    }
+
+    /** 全辺の I²R 損失（1 tick 分のジュール） */
+    double lossJ() {
+        double j = 0.0;
+        for (int e = 0; e < edgeR.length; e++) {
+            j += PowerUnits.resistiveLossJ(edgeCurrent(e), edgeR[e], 1.0);
+        }
+        return j;
+    }
+
+    int lastIterations() { return lastIterations; }
+
+    double lastResidual() { return lastResidual; }
+}
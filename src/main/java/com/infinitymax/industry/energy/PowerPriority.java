@@ -0,0 +1,28 @@
+package com.infinitymax.industry.energy;
+
+/**
+ * 電力の優先度（ElectricNetwork が段ごとに順に配る）
+ *
+ * 負荷側（受電の順）:
+ * - CRITICAL: 不足時も最後まで止めない機械
+ * - NORMAL:   通常の機械（既定）
+ * - STORAGE:  蓄電池の充電（余った分だけ）
+ * - DUMP:     捨て負荷（さらに余った分だけ）
+ *
+ * 電源側（給電の順 = 安い順）:
+ * - CRITICAL: 止められない / 燃料不要の電源（太陽光・風力等）。最初に使い切る
+ * - NORMAL:   燃料を焚く発電機（既定）
+ * - STORAGE:  蓄電池の放電
+ * - DUMP:     最後の手段（非常用など高コスト）
+ */
+public enum PowerPriority {
+    CRITICAL, NORMAL, STORAGE, DUMP;
+
+    static final PowerPriority[] VALUES = values();
+
+    /** 保存名から引く（未知・空なら fallback） */
+    public static PowerPriority byName(String name, PowerPriority fallback) {
+        for (PowerPriority p : VALUES) if (p.name().equals(name)) return p;
+        return fallback;
+    }
+}
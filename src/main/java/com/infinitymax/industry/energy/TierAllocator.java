@@ -0,0 +1,60 @@
+package com.infinitymax.industry.energy;
+
+import java.util.Arrays;
+
+/**
+ * 優先度段ごとの配分（PowerPriority の順に埋める）
+ *
+ * - add で段ごとの要求量を足し、allocate(available) で上の段から順に満たす
+ * - 同じ段の中は要求量に比例（段ごとの充足率 fraction(tier) を掛けるだけ）
+ * - 段数は固定なので、ソートせずに O(n) の 2 パスで済む（集計 1 パス + 適用 1 パス）
+ */
+final class TierAllocator {
+
+    private static final int TIERS = PowerPriority.VALUES.length;
+
+    private final double[] want = new double[TIERS];
+    private final double[] fill = new double[TIERS];
+    private double total = 0.0;
+
+    void clear() {
+        Arrays.fill(want, 0.0);
+        total = 0.0;
+    }
+
+    void add(int tier, double amount) {
+        want[tier] += amount;
+        total += amount;
+    }
+
+    double total() {
+        return total;
+    }
+
+    /** 上の段から順に available を配り、各段の充足率を決める。戻り値は配った合計 */
+    double allocate(double available) {
+        double left = Math.max(0.0, available);
+        double given = 0.0;
+        for (int t = 0; t < TIERS; t++) {
+            if (want[t] <= 0.0) {
+                fill[t] = 0.0;
+                continue;
+            }
+            double g = Math.min(want[t], left);
+            fill[t] = g / want[t];
+            left -= g;
+            given += g;
+        }
+        return given;
+    }
+
+    /** 段 tier の充足率（0..1） */
+    double fraction(int tier) {
+        return fill[tier];
+    }
+
+    /** 全段の充足率を out へ写す（統計用） */
+    void copyFractions(double[] out) {
+        System.arraycopy(fill, 0, out, 0, TIERS);
+    }
+}
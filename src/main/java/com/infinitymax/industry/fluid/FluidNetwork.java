@@ -1,5 +1,16 @@
 package com.infinitymax.industry.fluid;
 
+import com.infinitymax.industry.network.ContractedGraph;
+import com.infinitymax.industry.network.ISolvableNetwork;
+import com.infinitymax.industry.network.NetworkGraph;
+import com.infinitymax.industry.network.PackedPosView;
+import com.infinitymax.industry.network.SmartNetworkManager;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.Level;
@@ -10,127 +21,429 @@ import java.util.*;
 /**
  * FluidNetwork (改良版)
  *
- * - discoverAll(level): ワールド内の全ネットワークを発見（チャンク走査を試み、できなければフォールバック） 
+ * - discoverAll(level): ワールド内の全ネットワークを発見（SmartNetworkManager のチャンク別ノード索引を回す）
  * - discoverFromOrigins(level, origins): 起点集合から局所的に flood を行い、そのコンポーネントのみ返す（高速）
- * - tick(level): ネットワーク単位での流体配分（既存ロジックの踏襲）
- *
- * 注意:
- * - getAllBlockEntities(ServerLevel) は環境依存なので「チャンク走査最速経路」を試み、失敗時は level.blockEntities.values() のようなフォールバックを使います。
+ * - flood / 隣接判定は共有グラフエンジン NetworkGraph（GRAPH）に任せる
+ * - tick(level): ネットワーク単位での流体配分（既存ロジックの踏襲）。prepare / solve / apply の 3 相に分割
+ * - 導管（isConductor）の直線区間は ContractedGraph で辺に縮約し、配分の入力はタンク等の端点だけにする
+ *   導管は流すだけでバッファにはならない（受入側にしない）。導管の容量は辺の容量（区間の最小の流量上限）として効き、
+ *   比例配分でも各端点の出入りはその端点に接する辺の容量の和で頭打ちになる。中身が残った導管は空になるまで供給側
+ * - 圧力ソルバモード（-Dinfinitymax.fluidPressureSolver=true / setPressureSolver）: 端点をノードの圧力で固定し、
+ *   分岐の圧力を PressureSolver で緩和して、辺ごとの流量（圧力差 / 媒体の流動抵抗）から各ノードの出入りを決める。
+ *   1 tick の掃引回数は上限付きで、収束しきらない分は次 tick に持ち越す。出入りの合計は一致させる（流体は増減しない）
+ * - 既定は比例配分（全供給側 -> 全受入側を容量比で一度に流す）
  */
-public final class FluidNetwork {
+public final class FluidNetwork implements ISolvableNetwork {
+
+    /** 流体ネットワークのグラフ定義: IPressureNode 同士を、接続面が向かい合うときだけつなぐ */
+    public static final NetworkGraph GRAPH = new NetworkGraph(be -> be instanceof IPressureNode, NetworkGraph.MUTUAL);
+
+    // 圧力緩和の 1 tick あたりの上限（コストは掃引回数 x 辺数で頭打ち）。圧力の変化がこれ未満なら打ち切る
+    private static final int RELAX_MAX_SWEEPS = 8;
+    private static final double RELAX_TOLERANCE_KPA = 0.01;
 
-    private final Set<BlockPos> nodes;
+    // 圧力ソルバモード（既定 off）
+    private static volatile boolean pressureSolver = Boolean.getBoolean("infinitymax.fluidPressureSolver");
+
+    /** 圧力ソルバモードの切り替え（次の prepare から有効） */
+    public static void setPressureSolver(boolean enabled) {
+        pressureSolver = enabled;
+    }
+
+    public static boolean isPressureSolver() {
+        return pressureSolver;
+    }
+
+    // ノード座標は BlockPos.asLong() で詰めて保持（BlockPos オブジェクトを持たない）
+    private final LongOpenHashSet nodes;
+    private final LongSet nodesView;
+    private final Set<BlockPos> positionsView;
 
     public FluidNetwork(Set<BlockPos> nodes) {
-        this.nodes = new HashSet<>(nodes);
+        this.nodes = new LongOpenHashSet(nodes.size());
+        for (BlockPos p : nodes) this.nodes.add(p.asLong());
+        this.nodesView = LongSets.unmodifiable(this.nodes);
+        this.positionsView = new PackedPosView(nodesView);
     }
 
-    public Set<BlockPos> getNodePositions() { return Collections.unmodifiableSet(nodes); }
+    public FluidNetwork(LongSet nodes) {
+        this.nodes = new LongOpenHashSet(nodes);
+        this.nodesView = LongSets.unmodifiable(this.nodes);
+        this.positionsView = new PackedPosView(nodesView);
+    }
+
+    /** 互換用ビュー（反復のたびに BlockPos を作る。ホットパスでは getNodeKeys() を使う） */
+    public Set<BlockPos> getNodePositions() { return positionsView; }
+
+    /** ノード座標（BlockPos.asLong()）の読み取り専用ビュー */
+    public LongSet getNodeKeys() { return nodesView; }
 
     // -----------------------
     // discoverFromOrigins: origins を起点に局所探索してネットワーク群を返す
     // -----------------------
     public static List<FluidNetwork> discoverFromOrigins(ServerLevel level, Set<BlockPos> origins) {
-        List<FluidNetwork> out = new ArrayList<>();
         if (origins == null || origins.isEmpty()) {
             // fallback to full discover
             return discoverAll(level);
         }
-
-        Set<BlockPos> visited = new HashSet<>();
-        for (BlockPos origin : origins) {
-            if (visited.contains(origin)) continue;
-            BlockEntity be = level.getBlockEntity(origin);
-            if (!(be instanceof IPressureNode)) continue;
-            // flood from origin
-            Set<BlockPos> comp = flood(level, origin);
-            if (!comp.isEmpty()) {
-                visited.addAll(comp);
-                out.add(new FluidNetwork(comp));
-            }
-        }
+        List<FluidNetwork> out = new ArrayList<>();
+        for (LongOpenHashSet comp : GRAPH.discoverFrom(level, origins)) out.add(new FluidNetwork(comp));
         return out;
     }
 
     // -----------------------
-    // discoverAll: ワールド内の全ネットワークを探す（チャンク走査優先、失敗時フォールバック）
+    // discoverAll: ワールド内の全ネットワークを探す（ノード索引から。コストはノード数に比例）
     // -----------------------
     public static List<FluidNetwork> discoverAll(ServerLevel level) {
         List<FluidNetwork> out = new ArrayList<>();
-        Set<BlockPos> visited = new HashSet<>();
+        // ロード済みノードの索引だけを回す（BE の onLoad / setRemoved で維持。level 全体の BE 走査はしない）
+        LongSet known = SmartNetworkManager.get().getFluidNodeKeys(level);
+        for (LongOpenHashSet comp : GRAPH.discoverAll(level, known)) out.add(new FluidNetwork(comp));
+        return out;
+    }
+
+    // -----------------------
+    // tick: ネットワーク単位の流体計算（既存ロジックの簡潔な再現）
+    //   prepare: BE から容量を読む / solve: 配分計算（BE に触らない） / apply: flow を呼ぶ
+    // -----------------------
+    //   スナップショットは配列 + 件数で持ち、足りないときだけ伸ばす（定常では tick ごとの確保なし）
+    private IPressureNode[] snapSources = new IPressureNode[0];
+    private IPressureNode[] snapSinks = new IPressureNode[0];
+    private int snapSourceCount = 0;
+    private int snapSinkCount = 0;
+    private int[] srcCap = new int[0];
+    private int[] sinkCap = new int[0];
+    // 各ノードの縮約グラフ上の端点番号（-1 = 縮約された導管）
+    private int[] srcTerm = new int[0];
+    private int[] sinkTerm = new int[0];
+    private int[] srcShare = new int[0];
+    private int[] sinkShare = new int[0];
+    private boolean snapActive = false;
 
-        Iterable<BlockEntity> allBE = getAllBlockEntities(level);
+    // 圧力ソルバモードのスナップショット: 端点を固定するノードと、その端点・圧力・出入りの上限
+    private IPressureNode[] snapFixed = new IPressureNode[0];
+    private int snapFixedCount = 0;
+    private int[] fixedTerm = new int[0];
+    private double[] fixedKPa = new double[0];
+    private int[] fixedOut = new int[0];
+    private int[] fixedIn = new int[0];
+    private double[] fixedOutWant = new double[0];
+    private double[] fixedInWant = new double[0];
+    // 正味の出入り[mB]（+ 流入 / - 流出）
+    private int[] fixedShare = new int[0];
+    // 別の媒体のノード（端点を遮断するだけで、出入りはさせない）
+    private boolean[] fixedForeign = new boolean[0];
+    private Medium snapMedium;
+    private boolean snapPressure = false;
+    private PressureSolver solver;
+    private int lastRelaxSweeps = 0;
+    private long lastRelaxNanos = 0L;
 
-        for (BlockEntity be : allBE) {
-            BlockPos pos = be.getBlockPos();
-            if (visited.contains(pos)) continue;
-            if (!(be instanceof IPressureNode)) continue;
+    // ---- 解決済みノード参照 ----
+    //   rebuild 後の最初の prepare で 1 回だけ level.getBlockEntity で引き、平らな配列に持つ
+    //   以後の tick は配列を回すだけ。撤去 / チャンクアンロード / 隣接変化で invalidateResolved() される
+    //   導管は resolved に入れず縮約グラフにだけ反映する。中身が残っている導管は draining に入れ、空になるまで供給側に使う
+    private IPressureNode[] resolved = new IPressureNode[0];
+    // resolved[i] の縮約グラフ上の端点番号
+    private int[] resolvedTerm = new int[0];
+    private int resolvedCount = 0;
+    private IPressureNode[] draining = new IPressureNode[0];
+    private int drainingCount = 0;
+    private boolean resolvedValid = false;
+    private ContractedGraph graph;
+    // 端点ごとの、接する辺の容量の和（比例配分での出入りの上限。resolve で 1 回求める）
+    private double[] termEdgeCap = new double[0];
 
-            Set<BlockPos> comp = flood(level, pos);
-            if (!comp.isEmpty()) {
-                visited.addAll(comp);
-                out.add(new FluidNetwork(comp));
+    /** 次の prepare でノード参照を引き直させる */
+    public void invalidateResolved() {
+        resolvedValid = false;
+    }
+
+    private void resolve(Level level) {
+        if (resolved.length < nodes.size()) {
+            resolved = new IPressureNode[nodes.size()];
+            resolvedTerm = new int[nodes.size()];
+        }
+        int n = 0, nd = 0;
+        LongOpenHashSet conductors = new LongOpenHashSet();
+        Long2DoubleOpenHashMap condR = new Long2DoubleOpenHashMap();
+        Long2DoubleOpenHashMap condCap = new Long2DoubleOpenHashMap();
+        Long2ByteOpenHashMap masks = new Long2ByteOpenHashMap();
+        masks.defaultReturnValue(NetworkGraph.ALL_SIDES);
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (LongIterator it = nodes.iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            cursor.set(key);
+            // 未ロードのチャンクは引かない（同期ロードを避ける。ロード時の mark で引き直される）
+            if (!level.isLoaded(cursor)) continue;
+            if (level.getBlockEntity(cursor) instanceof IPressureNode node && !((BlockEntity) node).isRemoved()) {
+                masks.put(key, NetworkGraph.sideMask((BlockEntity) node));
+                if (node.isConductor()) {
+                    conductors.add(key);
+                    condR.put(key, 1.0); // 1 ブロック = 単位長さ
+                    condCap.put(key, node.getMaxFlowIntakePerTick());
+                    if (node.getAmountmB() > 0) {
+                        if (draining.length <= nd) draining = Arrays.copyOf(draining, Math.max(8, nd * 2));
+                        draining[nd++] = node;
+                    }
+                } else {
+                    resolved[n++] = node;
+                }
             }
         }
-        return out;
+        graph = ContractedGraph.build(nodes, masks, GRAPH.rule(), conductors::contains, condR, condCap);
+        for (int i = 0; i < n; i++) resolvedTerm[i] = graph.terminalIndex(((BlockEntity) resolved[i]).getBlockPos().asLong());
+        if (termEdgeCap.length < graph.terminalCount()) termEdgeCap = new double[graph.terminalCount()];
+        Arrays.fill(termEdgeCap, 0.0);
+        for (int e = 0, m = graph.edgeCount(); e < m; e++) {
+            if (graph.edgeA(e) == graph.edgeB(e)) continue;
+            termEdgeCap[graph.edgeA(e)] += graph.edgeCapacity(e);
+            termEdgeCap[graph.edgeB(e)] += graph.edgeCapacity(e);
+        }
+        solver = null;
+        // 古い参照を残さない（GC のため）
+        Arrays.fill(resolved, n, Math.max(n, resolvedCount), null);
+        Arrays.fill(draining, nd, Math.max(nd, drainingCount), null);
+        resolvedCount = n;
+        drainingCount = nd;
+        resolvedValid = true;
     }
 
-    // flood: start から連結 IPressureNode を BFS 収集
-    private static Set<BlockPos> flood(Level level, BlockPos start) {
-        Set<BlockPos> visited = new HashSet<>();
-        Deque<BlockPos> q = new ArrayDeque<>();
-        q.add(start);
-        while (!q.isEmpty()) {
-            BlockPos p = q.poll();
-            if (!visited.add(p)) continue;
-            BlockEntity be = level.getBlockEntity(p);
-            if (!(be instanceof IPressureNode)) continue;
-            for (BlockPos n : neighbors(p)) {
-                if (!visited.contains(n)) {
-                    BlockEntity nbe = level.getBlockEntity(n);
-                    if (nbe instanceof IPressureNode) q.add(n);
-                }
+    @Override
+    public void prepare(Level level) {
+        int prevNs = snapSourceCount, prevNd = snapSinkCount, prevNf = snapFixedCount;
+        int ns = 0, nd = 0, nf = 0;
+        snapActive = false;
+        snapPressure = false;
+        if (nodes.isEmpty()) {
+            releaseSnapshot(0, 0, prevNs, prevNd);
+            releaseFixed(0, prevNf);
+            return;
+        }
+
+        Medium medium = null;
+        if (!resolvedValid) resolve(level);
+        boolean pressure = pressureSolver && graph != null;
+        for (int i = 0; i < resolvedCount; i++) {
+            IPressureNode n = resolved[i];
+            // 取りこぼした撤去（mark しないノード等）の保険: 使わずに次 tick で引き直す
+            if (((BlockEntity) n).isRemoved()) { resolvedValid = false; continue; }
+            if (medium == null) medium = n.getMedium();
+            if (pressure) {
+                // 別の媒体のノードも端点の遮断のために記録する（素通りの分岐として緩和されないように）
+                nf = addFixed(nf, n, resolvedTerm[i], n.getMedium() != medium);
+                continue;
             }
+            if (n.getMedium() != medium) continue;
+            if (n.getAmountmB() > 0 && n.getMaxFlowOutputPerTick() > 0) ns = addSource(ns, n, resolvedTerm[i]);
+            if (n.getAmountmB() < n.getCapacitymB() && n.getMaxFlowIntakePerTick() > 0) nd = addSink(nd, n, resolvedTerm[i]);
+        }
+        // 中身が残っている導管は供給側だけ。空になったものは外す
+        for (int i = 0; i < drainingCount; ) {
+            IPressureNode n = draining[i];
+            if (((BlockEntity) n).isRemoved() || n.getAmountmB() <= 0) {
+                draining[i] = draining[--drainingCount];
+                draining[drainingCount] = null;
+                continue;
+            }
+            if (medium == null) medium = n.getMedium();
+            if (n.getMedium() == medium && n.getMaxFlowOutputPerTick() > 0) ns = addSource(ns, n, -1);
+            i++;
         }
-        return visited;
+        releaseSnapshot(ns, nd, prevNs, prevNd);
+        releaseFixed(nf, prevNf);
+        if (srcCap.length < ns) { srcCap = new int[snapSources.length]; srcShare = new int[snapSources.length]; }
+        // 圧力ソルバは辺ごとの流量を自分で解くので、辺の容量で切るのは比例配分のときだけ
+        for (int i = 0; i < ns; i++) srcCap[i] = pressure ? snapSources[i].getMaxFlowOutputPerTick() : throughCap(srcTerm[i], snapSources[i].getMaxFlowOutputPerTick());
+        if (pressure) {
+            // 中身の残った導管（draining）は、圧力解とは別に供給側として上乗せする
+            if (medium == null || nf == 0) return;
+            if (solver == null) solver = new PressureSolver(graph);
+            snapMedium = medium;
+            snapPressure = true;
+            snapActive = true;
+            return;
+        }
+        if (medium == null || ns == 0 || nd == 0) return;
+
+        if (sinkCap.length < nd) { sinkCap = new int[snapSinks.length]; sinkShare = new int[snapSinks.length]; }
+        for (int i = 0; i < nd; i++) sinkCap[i] = throughCap(sinkTerm[i], snapSinks[i].getMaxFlowIntakePerTick());
+        snapActive = true;
     }
 
-    private static List<BlockPos> neighbors(BlockPos p) {
-        return List.of(p.above(), p.below(), p.north(), p.south(), p.east(), p.west());
+    // ノード自身の上限と、端点に接する辺（導管の区間）の容量の和の小さい方。縮約された導管（-1）は自身の上限だけ
+    private int throughCap(int term, int cap) {
+        if (term < 0 || term >= termEdgeCap.length) return cap;
+        return (int) Math.min(cap, termEdgeCap[term]);
     }
 
-    // -----------------------
-    // tick: ネットワーク単位の流体計算（既存ロジックの簡潔な再現）
-    // -----------------------
-    public void tick(Level level) {
-        if (nodes.isEmpty()) return;
+    private int addSource(int ns, IPressureNode n, int term) {
+        if (snapSources.length <= ns) {
+            snapSources = Arrays.copyOf(snapSources, Math.max(8, ns * 2));
+            srcTerm = Arrays.copyOf(srcTerm, snapSources.length);
+        }
+        snapSources[ns] = n;
+        srcTerm[ns] = term;
+        return ns + 1;
+    }
 
-        Medium medium = null;
-        List<IPressureNode> sources = new ArrayList<>();
-        List<IPressureNode> sinks = new ArrayList<>();
+    private int addSink(int nd, IPressureNode n, int term) {
+        if (snapSinks.length <= nd) {
+            snapSinks = Arrays.copyOf(snapSinks, Math.max(8, nd * 2));
+            sinkTerm = Arrays.copyOf(sinkTerm, snapSinks.length);
+        }
+        snapSinks[nd] = n;
+        sinkTerm[nd] = term;
+        return nd + 1;
+    }
 
-        for (BlockPos p : nodes) {
-            BlockEntity be = level.getBlockEntity(p);
-            if (!(be instanceof IPressureNode n)) continue;
-            if (medium == null) medium = n.getMedium();
-            if (n.getMedium() != medium) continue;
-            if (n.getAmountmB() > 0 && n.getMaxFlowOutputPerTick() > 0) sources.add(n);
-            if (n.getAmountmB() < n.getCapacitymB() && n.getMaxFlowIntakePerTick() > 0) sinks.add(n);
+    private int addFixed(int nf, IPressureNode n, int term, boolean foreign) {
+        if (snapFixed.length <= nf) {
+            int len = Math.max(8, nf * 2);
+            snapFixed = Arrays.copyOf(snapFixed, len);
+            fixedTerm = Arrays.copyOf(fixedTerm, len);
+            fixedKPa = Arrays.copyOf(fixedKPa, len);
+            fixedOut = Arrays.copyOf(fixedOut, len);
+            fixedIn = Arrays.copyOf(fixedIn, len);
+            fixedForeign = Arrays.copyOf(fixedForeign, len);
+            fixedOutWant = new double[len];
+            fixedInWant = new double[len];
+            fixedShare = new int[len];
         }
-        if (medium == null || sources.isEmpty() || sinks.isEmpty()) return;
+        int amount = n.getAmountmB();
+        snapFixed[nf] = n;
+        fixedTerm[nf] = term;
+        fixedKPa[nf] = n.getPressureKPa();
+        fixedForeign[nf] = foreign;
+        fixedOut[nf] = foreign || amount <= 0 ? 0 : Math.min(n.getMaxFlowOutputPerTick(), amount);
+        fixedIn[nf] = foreign ? 0 : Math.max(0, Math.min(n.getMaxFlowIntakePerTick(), n.getCapacitymB() - amount));
+        return nf + 1;
+    }
 
-        int totalOutCap = sources.stream().mapToInt(IPressureNode::getMaxFlowOutputPerTick).sum();
-        int totalInCap  = sinks.stream().mapToInt(IPressureNode::getMaxFlowIntakePerTick).sum();
+    private void releaseFixed(int nf, int prevNf) {
+        if (prevNf > nf) Arrays.fill(snapFixed, nf, prevNf, null);
+        snapFixedCount = nf;
+    }
+
+    // 件数を確定し、前 tick より減った分の参照は残さない（GC のため）
+    private void releaseSnapshot(int ns, int nd, int prevNs, int prevNd) {
+        if (prevNs > ns) Arrays.fill(snapSources, ns, prevNs, null);
+        if (prevNd > nd) Arrays.fill(snapSinks, nd, prevNd, null);
+        snapSourceCount = ns;
+        snapSinkCount = nd;
+    }
+
+    @Override
+    public void solve() {
+        if (!snapActive) return;
+        if (snapPressure) {
+            solvePressure();
+            return;
+        }
+        int ns = snapSourceCount, nd = snapSinkCount;
+        int totalOutCap = 0, totalInCap = 0;
+        for (int i = 0; i < ns; i++) totalOutCap += srcCap[i];
+        for (int i = 0; i < nd; i++) totalInCap += sinkCap[i];
         int flow = Math.min(totalOutCap, totalInCap);
-        if (flow <= 0) return;
+        if (flow <= 0) {
+            snapActive = false;
+            return;
+        }
+        for (int i = 0; i < ns; i++) srcShare[i] = (int)Math.round(flow * (srcCap[i] / (double)Math.max(1, totalOutCap)));
+        for (int i = 0; i < nd; i++) sinkShare[i] = (int)Math.round(flow * (sinkCap[i] / (double)Math.max(1, totalInCap)));
+    }
+
+    // -----------------------
+    // 圧力ソルバ
+    //   1) ノードのある端点をその圧力で固定し、分岐の圧力を上限付きで緩和する（前 tick の解から続ける）
+    //   2) 各ノードの正味の流出入 = 接続辺の流量の和。ノードの出入りの上限で切る
+    //   3) 流出の合計と流入の合計の小さい方を実際の流量とし、両側を同じ比率で縮めて整数 mB に配る
+    //      （緩和が途中でも、ノード間の出入りは必ず一致する）
+    // -----------------------
+    private void solvePressure() {
+        PressureSolver s = solver;
+        int nf = snapFixedCount, ns = snapSourceCount;
+        long t0 = System.nanoTime();
+        s.setMedium(snapMedium);
+        s.clearFixed();
+        for (int k = 0; k < nf; k++) {
+            if (fixedTerm[k] < 0) continue;
+            if (fixedForeign[k]) s.block(fixedTerm[k], fixedKPa[k]);
+            else s.fix(fixedTerm[k], fixedKPa[k]);
+        }
+        lastRelaxSweeps = s.relax(RELAX_MAX_SWEEPS, RELAX_TOLERANCE_KPA);
+
+        double totalOut = 0.0, totalIn = 0.0;
+        for (int k = 0; k < nf; k++) {
+            double q = fixedTerm[k] < 0 || fixedForeign[k] ? 0.0 : s.netOutflow(fixedTerm[k]);
+            fixedOutWant[k] = Math.min(fixedOut[k], Math.max(0.0, q));
+            fixedInWant[k] = Math.min(fixedIn[k], Math.max(0.0, -q));
+            totalOut += fixedOutWant[k];
+            totalIn += fixedInWant[k];
+        }
+        for (int i = 0; i < ns; i++) totalOut += srcCap[i];
+        int flow = (int) Math.floor(Math.min(totalOut, totalIn));
+        lastRelaxNanos = System.nanoTime() - t0;
+        if (flow <= 0) {
+            snapActive = false;
+            return;
+        }
+        double fo = flow / totalOut, fi = flow / totalIn;
+        int remOut = flow, remIn = flow;
+        for (int k = 0; k < nf; k++) {
+            int out = (int) (fixedOutWant[k] * fo), in = (int) (fixedInWant[k] * fi);
+            fixedShare[k] = in - out;
+            remOut -= out;
+            remIn -= in;
+        }
+        for (int i = 0; i < ns; i++) {
+            srcShare[i] = (int) (srcCap[i] * fo);
+            remOut -= srcShare[i];
+        }
+        // 切り捨てた端数を、取り分に余りのあるところへ 1 mB ずつ配る（出入りの合計を flow に揃える）
+        for (int k = 0; k < nf && (remOut > 0 || remIn > 0); k++) {
+            if (remOut > 0 && -fixedShare[k] < fixedOutWant[k] * fo && fixedInWant[k] == 0.0) { fixedShare[k]--; remOut--; }
+            if (remIn > 0 && fixedShare[k] < fixedInWant[k] * fi && fixedOutWant[k] == 0.0) { fixedShare[k]++; remIn--; }
+        }
+        for (int i = 0; i < ns && remOut > 0; i++) {
+            if (srcShare[i] < srcCap[i] * fo) { srcShare[i]++; remOut--; }
+        }
+    }
 
-        for (IPressureNode s : sources) {
-            int share = (int)Math.round(flow * (s.getMaxFlowOutputPerTick() / (double)Math.max(1, totalOutCap)));
-            s.flow(level, asBlockPos(s), -share);
+    /** 圧力ソルバの直近 tick の {掃引回数, 所要ナノ秒} */
+    public long[] getLastRelaxStats() {
+        return new long[]{lastRelaxSweeps, lastRelaxNanos};
+    }
+
+    @Override
+    public void apply(Level level) {
+        if (!snapActive) return;
+        if (snapPressure) {
+            // 先に流出側、次に流入側（比例配分と同じ順）
+            for (int k = 0; k < snapFixedCount; k++) {
+                if (fixedShare[k] >= 0) continue;
+                IPressureNode s = snapFixed[k];
+                s.flow(level, asBlockPos(s), fixedShare[k]);
+            }
+            for (int i = 0; i < snapSourceCount; i++) {
+                if (srcShare[i] <= 0) continue;
+                IPressureNode s = snapSources[i];
+                s.flow(level, asBlockPos(s), -srcShare[i]);
+            }
+            for (int k = 0; k < snapFixedCount; k++) {
+                if (fixedShare[k] <= 0) continue;
+                IPressureNode d = snapFixed[k];
+                d.flow(level, asBlockPos(d), fixedShare[k]);
+            }
+            return;
         }
-        for (IPressureNode d : sinks) {
-            int share = (int)Math.round(flow * (d.getMaxFlowIntakePerTick() / (double)Math.max(1, totalInCap)));
-            d.flow(level, asBlockPos(d), +share);
+        for (int i = 0; i < snapSourceCount; i++) {
+            IPressureNode s = snapSources[i];
+            s.flow(level, asBlockPos(s), -srcShare[i]);
+        }
+        for (int i = 0; i < snapSinkCount; i++) {
+            IPressureNode d = snapSinks[i];
+            d.flow(level, asBlockPos(d), +sinkShare[i]);
         }
     }
 
@@ -138,6 +451,12 @@ public final class FluidNetwork {
         // optional hook
     }
 
+    /** 縮約後の {端点数, 辺数}（未解決なら {0, 0}） */
+    public int[] getContractedSize() {
+        ContractedGraph g = graph;
+        return g == null ? new int[]{0, 0} : new int[]{g.terminalCount(), g.edgeCount()};
+    }
+
     // -----------------------
     // Helpers
     // -----------------------
@@ -145,77 +464,4 @@ public final class FluidNetwork {
         if (n instanceof BlockEntity be) return be.getBlockPos();
         throw new IllegalStateException("IPressureNode must be BlockEntity");
     }
-
-    /**
-     * できるだけ高速に「ロード済み BlockEntity」を列挙する。
-     *  - まずチャンク走査で得る方法を試みる（高速）
-     *  - 失敗する/アクセスできない場合は level.blockEntities.values() 相当を使うフォールバック
-     *
-     *  *注意* : 各環境（NeoForge/Forge/Fabric）でチャンク管理 API の名前は異なります。
-     * もしコンパイルエラーが出たら、ここだけあなたの環境の「loaded chunk iterator」に置き換えてください。
-     */
-    @SuppressWarnings("unchecked")
-    private static Iterable<BlockEntity> getAllBlockEntities(ServerLevel level) {
-        try {
-            // --- 試行 1: ServerLevel のチャンクプロバイダ経由で loaded chunk を列挙する高速経路 ---
-            // ここでは一般的な実装名を試すが、環境により異なるため try/catch で保護。
-            var chunkSource = level.getChunkSource();
-            // chunkSource.chunkMap (Fabric/modern) など異なる実装がある。
-            // 下のリフレクションは安全策：取得できればチャンクの block entities を返す。
-            java.lang.reflect.Field f = chunkSource.getClass().getDeclaredField("chunkMap");
-            f.setAccessible(true);
-            Object chunkMap = f.get(chunkSource);
-            if (chunkMap != null) {
-                // chunkMap の loadedChunks などを探す（環境に依存）
-                // 試しに "chunks" フィールドを探す
-                java.lang.reflect.Field cf = chunkMap.getClass().getDeclaredField("chunks");
-                cf.setAccessible(true);
-                Object chunksObj = cf.get(chunkMap);
-                if (chunksObj instanceof java.util.Collection<?> coll) {
-                    // collect block entities from each chunk
-                    List<BlockEntity> out = new ArrayList<>();
-                    for (Object c : coll) {
-                        try {
-                            // try common possibilities: chunk.blockEntities, chunk.getBlockEntities()
-                            java.lang.reflect.Field beField = c.getClass().getDeclaredField("blockEntities");
-                            beField.setAccessible(true);
-                            Object beMap = beField.get(c);
-                            if (beMap instanceof java.util.Map<?, ?> map) {
-                                for (Object v : map.values()) if (v instanceof BlockEntity be) out.add(be);
-                            }
-                        } catch (NoSuchFieldException ignored) {
-                            // fallback: try method getBlockEntities()
-                            try {
-                                var method = c.getClass().getMethod("getBlockEntities");
-                                Object beCol = method.invoke(c);
-                                if (beCol instanceof java.util.Collection<?> bc) {
-                                    for (Object o : bc) if (o instanceof BlockEntity be) out.add(be);
-                                }
-                            } catch (Exception ignored2) {}
-                        } catch (Exception ex) {
-                            // ignore chunk-level errors
-                        }
-                    }
-                    return out;
-                }
-            }
-        } catch (Throwable ignored) {
-            // reflection path failed -> fallback below
-        }
-
-        // --- フォールバック: level.blockEntities.values() のような実装を試す ---
-        try {
-            java.lang.reflect.Field beField = level.getClass().getDeclaredField("blockEntities");
-            beField.setAccessible(true);
-            Object map = beField.get(level);
-            if (map instanceof java.util.Map<?, ?> m) {
-                List<BlockEntity> out = new ArrayList<>();
-                for (Object v : m.values()) if (v instanceof BlockEntity be) out.add(be);
-                return out;
-            }
-        } catch (Throwable ignored) {}
-
-        // 最終フォールバック: 空コレクション（※ 本来は何らかの列挙が必要）
-        return Collections.emptyList();
-    }
 }
\ No newline at end of file
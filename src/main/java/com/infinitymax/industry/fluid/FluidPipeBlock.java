@@ -9,8 +9,6 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.material.MapColor;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.entity.BlockEntityTicker;
-import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.InteractionHand;
@@ -21,7 +19,7 @@ import org.jetbrains.annotations.Nullable;
  * パイプブロック実装
  *
  * - 近傍変化を拾って BE#onNeighborsChanged() を呼び、ネットワーク再構築を要求します
- * - サーバ側で BE.serverTick() を回すティッカーを提供
+ * - BE.serverTick() は TickDispatcher が回す（getTicker は返さない＝二重 tick 防止）
  */
 public class FluidPipeBlock extends Block implements EntityBlock {
 
@@ -69,11 +67,4 @@ public class FluidPipeBlock extends Block implements EntityBlock {
             if (be instanceof FluidPipeBlockEntity pipe) pipe.onNeighborsChanged();
         }
     }
-
-    @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(Level level, BlockState state, BlockEntityType<T> type) {
-        return level.isClientSide ? null : (lvl, p, s, be) -> {
-            if (be instanceof FluidPipeBlockEntity pipe) pipe.serverTick();
-        };
-    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.infinitymax.industry.fluid;
 
 import com.infinitymax.industry.network.SmartNetworkManager;
+import com.infinitymax.industry.tick.IServerTickable;
 import com.infinitymax.industry.tick.TickDispatcher;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
@@ -13,9 +14,9 @@ import net.minecraft.world.level.block.state.BlockState;
  * 配管 (Pipe) の BlockEntity 実装（IPressureNode）
  *
  * - SmartNetworkManager を使って「起点座標つきデバウンス要求」を出す仕様
- * - serverTick() は軽量処理 + SmartNetworkManager.serverTick(level) を呼ぶ
+ * - serverTick() は軽量処理のみ（ネットワーク tick は TickDispatcher がレベル単位で回す）
  */
-public class FluidPipeBlockEntity extends BlockEntity implements IPressureNode {
+public class FluidPipeBlockEntity extends BlockEntity implements IPressureNode, IServerTickable {
 
     public static BlockEntityType<FluidPipeBlockEntity> TYPE;
 
@@ -29,7 +30,6 @@ public class FluidPipeBlockEntity extends BlockEntity implements IPressureNode {
 
     public FluidPipeBlockEntity(BlockPos pos, BlockState state) {
         super(TYPE, pos, state);
-        TickDispatcher.register(this);
     }
 
     @Override
@@ -50,6 +50,9 @@ public class FluidPipeBlockEntity extends BlockEntity implements IPressureNode {
     @Override public int getMaxFlowIntakePerTick() { return maxInPerTick; }
     @Override public int getMaxFlowOutputPerTick() { return Math.min(maxOutPerTick, amountmB); }
 
+    // 送るだけの導管: 直線区間はネットワーク側で辺に縮約される
+    @Override public boolean isConductor() { return true; }
+
     /**
      * フロー処理：requestedmB > 0 => 受入 (in)、 requestedmB < 0 => 供出 (out)
      * 戻り値は実際に処理された量（受入なら +、供出なら -）。
@@ -93,12 +96,15 @@ public class FluidPipeBlockEntity extends BlockEntity implements IPressureNode {
 
     /**
      * サーバー側ティック処理。
-     * - SmartNetworkManager.serverTick(level) を呼んでデバウンス再構築やネットワーク tick を回す
      * - 個体の軽量な緩和処理のみ行う
+     * - デバウンス再構築やネットワーク tick は TickDispatcher.tickLevel が 1 回だけ回す
      */
+    // ローカル緩和だけなので後回し可
+    @Override public boolean isDeferrable() { return true; }
+
+    @Override
     public void serverTick() {
         if (level == null || level.isClientSide) return;
-        SmartNetworkManager.get().serverTick(level);
         // ローカル緩和（例）
         pressureKPa = Math.max(101.3, pressureKPa - 0.001);
     }
@@ -132,6 +138,7 @@ public class FluidPipeBlockEntity extends BlockEntity implements IPressureNode {
     @Override
     public void onLoad() {
         super.onLoad();
+        TickDispatcher.register(this);
         if (level != null && !level.isClientSide) {
             // チャンク読み込み時は「この位置」を起点にデバウンス再構築を要求
             SmartNetworkManager.get().markFluidDirty(level, worldPosition);
@@ -14,8 +14,6 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.material.MapColor;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.entity.BlockEntityTicker;
-import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.phys.BlockHitResult;
 import org.jetbrains.annotations.Nullable;
 
@@ -24,6 +22,7 @@ import org.jetbrains.annotations.Nullable;
  *
  * - FluidTankBlockEntity を作成する
  * - 近傍変化や設置/削除で BE.onNeighborsChanged() を呼ぶ
+ * - BE.serverTick() は TickDispatcher が回す（getTicker は返さない＝二重 tick 防止）
  * - GUI を持つ場合は MenuProvider を返す形に拡張可能（ここでは BE が MenuProvider の場合は開く）
  */
 public class FluidTankBlock extends Block implements EntityBlock {
@@ -79,11 +78,4 @@ public class FluidTankBlock extends Block implements EntityBlock {
             if (be instanceof FluidTankBlockEntity tank) tank.onNeighborsChanged();
         }
     }
-
-    @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(Level level, BlockState state, BlockEntityType<T> type) {
-        return level.isClientSide ? null : (lvl, p, s, be) -> {
-            if (be instanceof FluidTankBlockEntity tank) tank.serverTick();
-        };
-    }
 }
\ No newline at end of file
@@ -3,8 +3,10 @@ package com.infinitymax.industry.blockentity;
 import com.infinitymax.industry.fluid.IPressureNode;
 import com.infinitymax.industry.fluid.Medium;
 import com.infinitymax.industry.network.SmartNetworkManager;
+import com.infinitymax.industry.tick.IServerTickable;
 import com.infinitymax.industry.tick.TickDispatcher;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
@@ -15,9 +17,9 @@ import net.minecraft.world.level.block.state.BlockState;
  * タンク (流体貯蔵のノード)
  *
  * - SmartNetworkManager を使って局所デバウンス再構築を要求する
- * - serverTick は軽量処理 + SmartNetworkManager.serverTick(level)
+ * - serverTick は軽量処理のみ（ネットワーク tick は TickDispatcher がレベル単位で回す）
  */
-public class FluidTankBlockEntity extends BlockEntity implements IPressureNode {
+public class FluidTankBlockEntity extends BlockEntity implements IPressureNode, IServerTickable {
 
     public static BlockEntityType<FluidTankBlockEntity> TYPE;
 
@@ -27,10 +29,11 @@ public class FluidTankBlockEntity extends BlockEntity implements IPressureNode {
     private double pressureKPa = 101.3;
     private int maxIn = 1000;
     private int maxOut = 1000;
+    // 隣接の機械を最後に起こした gameTime（同じ tick に何度も流されても 1 回だけ見に行く）
+    private long lastWakeGameTime = Long.MIN_VALUE;
 
     public FluidTankBlockEntity(BlockPos pos, BlockState state) {
         super(TYPE, pos, state);
-        TickDispatcher.register(this);
     }
 
     @Override
@@ -60,6 +63,7 @@ public class FluidTankBlockEntity extends BlockEntity implements IPressureNode {
             if (can > 0) {
                 amountmB += can;
                 pressureKPa = 101.3 + (amountmB / (double)capacitymB) * 400.0;
+                wakeNeighbors();
             }
             return can;
         } else {
@@ -68,11 +72,24 @@ public class FluidTankBlockEntity extends BlockEntity implements IPressureNode {
             if (can > 0) {
                 amountmB -= can;
                 pressureKPa = 101.3 + (amountmB / (double)capacitymB) * 400.0;
+                wakeNeighbors();
             }
             return -can;
         }
     }
 
+    // 中身が変わったら、その場で隣接の機械を起こす（流体待ちで眠っている可能性がある）。
+    // ネットワーク経由の出し入れはこの BE の serverTick を通らず、遠距離 tier では tick 自体が 20 tick おきなので待たない
+    private void wakeNeighbors() {
+        if (level == null || level.isClientSide) return;
+        long now = level.getGameTime();
+        if (now == lastWakeGameTime) return;
+        lastWakeGameTime = now;
+        for (Direction d : Direction.values()) {
+            if (level.getBlockEntity(worldPosition.relative(d)) instanceof MachineBlockEntity m) m.wake();
+        }
+    }
+
     @Override
     public void markDirtyGraph() {
         if (level != null && !level.isClientSide) {
@@ -80,10 +97,12 @@ public class FluidTankBlockEntity extends BlockEntity implements IPressureNode {
         }
     }
 
+    // ローカル緩和だけなので後回し可
+    @Override public boolean isDeferrable() { return true; }
+
+    @Override
     public void serverTick() {
         if (level == null || level.isClientSide) return;
-        // SmartNetworkManager に処理を委譲（デバウンス再構築・ネットワーク tick）
-        SmartNetworkManager.get().serverTick(level);
 
         // ローカルな緩和処理（例）
         pressureKPa = Math.max(101.3, pressureKPa - 0.02);
@@ -92,6 +111,7 @@ public class FluidTankBlockEntity extends BlockEntity implements IPressureNode {
     @Override
     public void onLoad() {
         super.onLoad();
+        TickDispatcher.register(this);
         if (level != null && !level.isClientSide) {
             SmartNetworkManager.get().markFluidDirty(level, worldPosition);
         }
@@ -27,4 +27,11 @@ public interface IPressureNode {
 
     /** グラフ変更 */
     void markDirtyGraph();
+
+    /**
+     * true なら流体を送るだけの導管（配管等）。
+     * ネットワークは次数 2 の導管の連なりを 1 本の辺に縮約し、配分計算の入力から外す。
+     * 既に中身がある導管は空になるまで供給側としてだけ扱う。
+     */
+    default boolean isConductor() { return false; }
 }
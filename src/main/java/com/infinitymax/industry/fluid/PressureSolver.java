@@ -0,0 +1,173 @@
+package com.infinitymax.industry.fluid;
+
+import com.infinitymax.industry.network.ContractedGraph;
+
+import java.util.Arrays;
+
+/**
+ * 縮約グラフ上の圧力緩和（FluidNetwork の圧力ソルバモード用）
+ *
+ * - 未知数は端点の圧力[kPa]。タンク等のノードがある端点は、そのノードの圧力で固定する（境界条件）
+ * - 別の媒体を持つノードの端点は遮断する（自身の圧力で固定し、接続辺のコンダクタンスを 0 とみなす）。
+ *   緩和も流量もそこを通らない
+ * - 固定されていない端点（配管の分岐）は Gauss-Seidel で「隣の圧力のコンダクタンス加重平均」へ緩和する
+ * - 1 tick あたりの掃引回数は上限付き。圧力は前 tick の値から始めるので、大きなプラントでも数 tick かけて収束する
+ * - 辺の流量[mB/tick] = g (pA - pB)。g は媒体の流動抵抗と区間の長さから決め、辺の容量（配管の最大流量）で頭打ち
+ * - 作業配列はすべて保持して使い回す（solve で確保しない）
+ * - BE / level には触らない（solve 相から並列に呼ばれてよい）
+ */
+final class PressureSolver {
+
+    static final double ATMOSPHERIC_KPA = 101.3;
+    // 1 ブロックあたりの流動抵抗[kPa/(mB/tick)] の係数。粘性項（∝ 粘度）と慣性項（∝ 密度）の和で、水なら 0.1
+    private static final double VISCOUS_K = 0.05;
+    private static final double INERTIAL_K = 0.05;
+    private static final double MIN_RESISTANCE = 1e-4;
+
+    private final int n;
+    private final int[] edgeA;
+    private final int[] edgeB;
+    // 区間の長さ[ブロック]（端点間の 1 歩を含む）
+    private final double[] edgeLen;
+    private final double[] edgeCap;
+    // 端点ごとの接続辺（CSR）
+    private final int[] rowPtr;
+    private final int[] adjEdge;
+
+    // 媒体で決まる辺のコンダクタンス[(mB/tick)/kPa]
+    private final double[] g;
+    private Medium medium;
+
+    // 圧力（前 tick の値を warm start に使う）と固定・遮断フラグ
+    private final double[] p;
+    private final boolean[] fixed;
+    private final boolean[] blocked;
+
+    private int lastSweeps = 0;
+    private double lastChangeKPa = 0.0;
+
+    PressureSolver(ContractedGraph graph) {
+        n = graph.terminalCount();
+        int m = graph.edgeCount();
+        edgeA = new int[m];
+        edgeB = new int[m];
+        edgeLen = new double[m];
+        edgeCap = new double[m];
+        int[] deg = new int[n];
+        for (int e = 0; e < m; e++) {
+            int a = graph.edgeA(e), b = graph.edgeB(e);
+            edgeA[e] = a;
+            edgeB[e] = b;
+            edgeLen[e] = graph.edgeResistance(e) + 1.0;
+            edgeCap[e] = graph.edgeCapacity(e);
+            if (a == b) continue; // 同じ端点に戻る区間は圧力差を持たない
+            deg[a]++;
+            deg[b]++;
+        }
+        rowPtr = new int[n + 1];
+        for (int i = 0; i < n; i++) rowPtr[i + 1] = rowPtr[i] + deg[i];
+        adjEdge = new int[rowPtr[n]];
+        int[] fill = Arrays.copyOf(rowPtr, n);
+        for (int e = 0; e < m; e++) {
+            if (edgeA[e] == edgeB[e]) continue;
+            adjEdge[fill[edgeA[e]]++] = e;
+            adjEdge[fill[edgeB[e]]++] = e;
+        }
+        g = new double[m];
+        p = new double[n];
+        fixed = new boolean[n];
+        blocked = new boolean[n];
+        Arrays.fill(p, ATMOSPHERIC_KPA);
+    }
+
+    int size() { return n; }
+
+    /** 1 ブロックあたりの流動抵抗（粘性 + 慣性。水基準） */
+    static double resistancePerBlock(Medium m) {
+        double r = VISCOUS_K * (m.viscosity / Medium.WATER.viscosity) + INERTIAL_K * (m.density / Medium.WATER.density);
+        return Math.max(MIN_RESISTANCE, r);
+    }
+
+    /** 媒体を設定する（変わったときだけ辺のコンダクタンスを計算し直す） */
+    void setMedium(Medium m) {
+        if (m == medium) return;
+        medium = m;
+        double r = resistancePerBlock(m);
+        for (int e = 0; e < g.length; e++) g[e] = 1.0 / (r * edgeLen[e]);
+    }
+
+    /** この tick の境界条件をいったん外す */
+    void clearFixed() {
+        Arrays.fill(fixed, false);
+        Arrays.fill(blocked, false);
+    }
+
+    /** 端点 t の圧力を固定する */
+    void fix(int t, double kPa) {
+        fixed[t] = true;
+        p[t] = kPa;
+    }
+
+    /** 端点 t を遮断する（別の媒体のノード。圧力は kPa で固定し、接続辺には流さない） */
+    void block(int t, double kPa) {
+        fix(t, kPa);
+        blocked[t] = true;
+    }
+
+    /**
+     * 固定されていない端点を最大 maxSweeps 回緩和する（変化が tolKPa を下回れば打ち切る）
+     * @return 掃引回数
+     */
+    int relax(int maxSweeps, double tolKPa) {
+        int sweeps = 0;
+        double change = 0.0;
+        while (sweeps < maxSweeps) {
+            change = 0.0;
+            for (int t = 0; t < n; t++) {
+                if (fixed[t]) continue;
+                double sg = 0.0, sp = 0.0;
+                for (int k = rowPtr[t], end = rowPtr[t + 1]; k < end; k++) {
+                    int e = adjEdge[k];
+                    int o = edgeA[e] == t ? edgeB[e] : edgeA[e];
+                    if (blocked[o]) continue;
+                    sg += g[e];
+                    sp += g[e] * p[o];
+                }
+                if (sg <= 0.0) continue;
+                double next = sp / sg;
+                change = Math.max(change, Math.abs(next - p[t]));
+                p[t] = next;
+            }
+            sweeps++;
+            if (change < tolKPa) break;
+        }
+        lastSweeps = sweeps;
+        lastChangeKPa = change;
+        return sweeps;
+    }
+
+    double pressure(int t) { return p[t]; }
+
+    /** 辺 e を A -> B 向きに流れる流量[mB/tick]（辺の容量で頭打ち） */
+    double edgeFlow(int e) {
+        if (blocked[edgeA[e]] || blocked[edgeB[e]]) return 0.0;
+        double q = g[e] * (p[edgeA[e]] - p[edgeB[e]]);
+        double cap = edgeCap[e];
+        return q > cap ? cap : (q < -cap ? -cap : q);
+    }
+
+    /** 端点 t から出ていく正味の流量[mB/tick]（負なら流れ込む） */
+    double netOutflow(int t) {
+        double s = 0.0;
+        for (int k = rowPtr[t], end = rowPtr[t + 1]; k < end; k++) {
+            int e = adjEdge[k];
+            double q = edgeFlow(e);
+            s += edgeA[e] == t ? q : -q;
+        }
+        return s;
+    }
+
+    int lastSweeps() { return lastSweeps; }
+
+    double lastChangeKPa() { return lastChangeKPa; }
+}
@@ -0,0 +1,68 @@
+package com.infinitymax.industry.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * 1 level・1 種類分のノード索引（チャンク -> ノード座標）
+ *
+ * - ノード BE の onLoad / setRemoved（チャンクアンロード時も呼ばれる）→ markXxxDirty 経由で登録・解除される
+ * - discoverAll はこれを回すだけ（リフレクションや level 全体の BE 走査はしない）。コストはノード数に比例
+ * - キーは ChunkPos.asLong() / BlockPos.asLong()
+ */
+final class ChunkNodeIndex {
+
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> byChunk = new Long2ObjectOpenHashMap<>();
+    private int size = 0;
+
+    static long chunkOf(long posKey) {
+        return ChunkPos.asLong(BlockPos.getX(posKey) >> 4, BlockPos.getZ(posKey) >> 4);
+    }
+
+    boolean add(long posKey) {
+        LongOpenHashSet set = byChunk.computeIfAbsent(chunkOf(posKey), k -> new LongOpenHashSet());
+        if (!set.add(posKey)) return false;
+        size++;
+        return true;
+    }
+
+    boolean remove(long posKey) {
+        long chunk = chunkOf(posKey);
+        LongOpenHashSet set = byChunk.get(chunk);
+        if (set == null || !set.remove(posKey)) return false;
+        if (set.isEmpty()) byChunk.remove(chunk);
+        size--;
+        return true;
+    }
+
+    /** チャンク内のノード座標（読み取り専用）。無ければ空集合 */
+    LongSet inChunk(long chunkKey) {
+        LongOpenHashSet set = byChunk.get(chunkKey);
+        return set == null ? LongSets.EMPTY_SET : LongSets.unmodifiable(set);
+    }
+
+    /** ノードを持つチャンク（読み取り専用） */
+    LongSet chunks() {
+        return LongSets.unmodifiable(byChunk.keySet());
+    }
+
+    /** 全ノード座標の複製 */
+    LongOpenHashSet copyAll() {
+        LongOpenHashSet out = new LongOpenHashSet(size);
+        for (Long2ObjectMap.Entry<LongOpenHashSet> e : byChunk.long2ObjectEntrySet()) out.addAll(e.getValue());
+        return out;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int chunkCount() {
+        return byChunk.size();
+    }
+}
@@ -0,0 +1,292 @@
+package com.infinitymax.industry.network;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+
+import java.util.*;
+
+/**
+ * 増分連結成分エンジン（1 level・1 種類のネットワークにつき 1 個）
+ *
+ * - add(pos, mask): 辺ルールでつながる隣接成分を union（小さい方を大きい方へ吸収）。成分全体の flood はしない
+ * - remove(pos): 撤去位置の隣接ノード（同じ成分のもの）から BFS を交互に 1 ノードずつ進める
+ *                探索同士が出会えば合流、探索が尽きたらその範囲だけを新しい成分として切り出す
+ *                生き残りが 1 本になった時点で打ち切るので、コストは「切り離された側」の大きさで決まる
+ * - 変更された成分 ID は drainChanged() で取り出し、呼び出し側（SmartNetworkManager）がネットワークを差し替える
+ * - 座標 -> 成分 ID は Long2IntOpenHashMap（BlockPos.asLong() キー、0 = 非ノード）で O(1) 参照
+ * - 成分のノード集合・探索の visited / キューも packed long のプリミティブコレクション
+ * - 隣接は NetworkGraph の辺ルール（接続面マスク同士）で判定する。マスクはノードごとに 1 byte で持つ
+ * - level / BE には触らない。ノードかどうか・マスクの算出は呼び出し側が行う
+ */
+final class ConnectivityEngine {
+
+    static final class Component {
+        final int id;
+        final LongOpenHashSet nodes;
+
+        Component(int id, LongOpenHashSet nodes) {
+            this.id = id;
+            this.nodes = nodes;
+        }
+    }
+
+    // remove 時の局所探索 1 本分
+    private static final class Search {
+        final LongOpenHashSet seen = new LongOpenHashSet();
+        final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        boolean dead = false;
+    }
+
+    private final Long2IntOpenHashMap posToId = new Long2IntOpenHashMap();
+    private final Long2ByteOpenHashMap masks = new Long2ByteOpenHashMap();
+    private final NetworkGraph.EdgeRule rule;
+    // 挿入順を保つ（ネットワークの tick 順を決定的にするため）
+    private final Map<Integer, Component> components = new LinkedHashMap<>();
+    private final Set<Integer> changed = new LinkedHashSet<>();
+    private int nextId = 1;
+
+    // 統計
+    private long merges = 0;
+    private long splits = 0;
+    private long searchVisited = 0;
+
+    ConnectivityEngine(NetworkGraph.EdgeRule rule) {
+        this.rule = rule;
+        posToId.defaultReturnValue(0);
+    }
+
+    NetworkGraph.EdgeRule rule() {
+        return rule;
+    }
+
+    // key から d 方向の n へ辺があるか（n がノードでなければ false）
+    private boolean linked(long key, Direction d, long n) {
+        return posToId.containsKey(n) && rule.connects(masks.get(key), d, masks.get(n));
+    }
+
+    boolean contains(BlockPos pos) {
+        return posToId.containsKey(pos.asLong());
+    }
+
+    boolean contains(long key) {
+        return posToId.containsKey(key);
+    }
+
+    int size() {
+        return posToId.size();
+    }
+
+    /** 座標が属する成分 ID（0 = ノードではない） */
+    int idAt(BlockPos pos) {
+        return posToId.get(pos.asLong());
+    }
+
+    int idAt(long key) {
+        return posToId.get(key);
+    }
+
+    private static final Direction[] DIRS = Direction.values();
+
+    private Component owner(long key) {
+        int id = posToId.get(key);
+        return id == 0 ? null : components.get(id);
+    }
+
+    /** 全ノード座標の複製 */
+    LongOpenHashSet copyNodes() {
+        return new LongOpenHashSet(posToId.keySet());
+    }
+
+    /** ノードの接続面マスク（ノードでなければ 0） */
+    byte maskAt(long key) {
+        return masks.get(key);
+    }
+
+    /** 成分のノード集合（BlockPos.asLong()）。消滅した ID なら null */
+    LongSet nodesOf(int id) {
+        Component c = components.get(id);
+        return c == null ? null : LongSets.unmodifiable(c.nodes);
+    }
+
+    Collection<Component> components() {
+        return Collections.unmodifiableCollection(components.values());
+    }
+
+    boolean hasChanges() {
+        return !changed.isEmpty();
+    }
+
+    /** 前回以降に中身が変わった（または消えた）成分 ID を返してクリアする */
+    List<Integer> drainChanged() {
+        List<Integer> out = new ArrayList<>(changed);
+        changed.clear();
+        return out;
+    }
+
+    /** 既存の全成分を変更扱いにする（モード切替でネットワークを作り直すとき用） */
+    void markAllChanged() {
+        changed.addAll(components.keySet());
+    }
+
+    // -------------------------
+    // 追加: 隣接成分を union
+    // -------------------------
+    void add(BlockPos pos, byte mask) {
+        long key = pos.asLong();
+        if (posToId.containsKey(key)) {
+            if (masks.get(key) == mask) return;
+            // 接続面が変わった: 外して付け直す（切れた側は remove の局所探索で分割される）
+            remove(pos);
+        }
+        masks.put(key, mask);
+
+        Component target = null;
+        List<Component> adjacent = new ArrayList<>(6);
+        for (Direction d : DIRS) {
+            long n = BlockPos.offset(key, d);
+            if (!linked(key, d, n)) continue;
+            Component c = owner(n);
+            if (c == null || adjacent.contains(c)) continue;
+            adjacent.add(c);
+            if (target == null || c.nodes.size() > target.nodes.size()) target = c;
+        }
+
+        if (target == null) {
+            target = new Component(nextId++, new LongOpenHashSet());
+            components.put(target.id, target);
+        }
+        for (Component c : adjacent) {
+            if (c == target) continue;
+            // 小さい方を大きい方へ吸収
+            for (LongIterator it = c.nodes.iterator(); it.hasNext(); ) posToId.put(it.nextLong(), target.id);
+            target.nodes.addAll(c.nodes);
+            components.remove(c.id);
+            changed.add(c.id);
+            merges++;
+        }
+        target.nodes.add(key);
+        posToId.put(key, target.id);
+        changed.add(target.id);
+    }
+
+    // -------------------------
+    // 復元: 保存済みの成分をそのまま 1 成分として登録する（隣接検査も union もしない）
+    //   中身の正しさはチャンク単位のハッシュ検証（SmartNetworkManager）に任せる
+    // -------------------------
+    void restore(LongOpenHashSet nodes, Long2ByteOpenHashMap nodeMasks) {
+        Component c = new Component(nextId++, new LongOpenHashSet(nodes.size()));
+        for (LongIterator it = nodes.iterator(); it.hasNext(); ) {
+            long k = it.nextLong();
+            if (posToId.containsKey(k)) continue;
+            c.nodes.add(k);
+            posToId.put(k, c.id);
+            masks.put(k, nodeMasks.get(k));
+        }
+        if (c.nodes.isEmpty()) return;
+        components.put(c.id, c);
+        changed.add(c.id);
+    }
+
+    // -------------------------
+    // 削除: 局所探索で本当に切れた時だけ分割
+    // -------------------------
+    void remove(BlockPos pos) {
+        long key = pos.asLong();
+        int id = posToId.remove(key);
+        byte mask = masks.remove(key);
+        Component c = id == 0 ? null : components.get(id);
+        if (c == null) return;
+        c.nodes.remove(key);
+        changed.add(c.id);
+        if (c.nodes.isEmpty()) {
+            components.remove(c.id);
+            return;
+        }
+
+        long[] seeds = new long[6];
+        int ns = 0;
+        for (Direction d : DIRS) {
+            long n = BlockPos.offset(key, d);
+            if (c.nodes.contains(n) && rule.connects(mask, d, masks.get(n))) seeds[ns++] = n;
+        }
+        // 隣接が 1 つ以下なら分断は起こり得ない（端を削っただけ）
+        if (ns <= 1) return;
+        splitIfDisconnected(c, seeds, ns);
+    }
+
+    private void splitIfDisconnected(Component c, long[] seeds, int ns) {
+        Long2ObjectOpenHashMap<Search> claim = new Long2ObjectOpenHashMap<>();
+        ArrayDeque<Search> rr = new ArrayDeque<>();
+        for (int i = 0; i < ns; i++) {
+            Search search = new Search();
+            search.seen.add(seeds[i]);
+            search.queue.enqueue(seeds[i]);
+            claim.put(seeds[i], search);
+            rr.add(search);
+        }
+        int live = rr.size();
+
+        while (live > 1) {
+            Search s = rr.poll();
+            if (s.dead) continue;
+            if (s.queue.isEmpty()) {
+                // 他の探索と出会わずに尽きた = 切り離された部分
+                splitOff(c, s.seen);
+                s.dead = true;
+                live--;
+                continue;
+            }
+            long p = s.queue.dequeueLong();
+            searchVisited++;
+            Search cur = s;
+            for (Direction d : DIRS) {
+                long n = BlockPos.offset(p, d);
+                if (!c.nodes.contains(n) || !linked(p, d, n)) continue;
+                Search o = claim.get(n);
+                if (o == null) {
+                    claim.put(n, cur);
+                    cur.seen.add(n);
+                    cur.queue.enqueue(n);
+                } else if (o != cur) {
+                    // 合流: 小さい方を大きい方へ
+                    Search big = o.seen.size() >= cur.seen.size() ? o : cur;
+                    Search small = big == o ? cur : o;
+                    for (LongIterator it = small.seen.iterator(); it.hasNext(); ) claim.put(it.nextLong(), big);
+                    big.seen.addAll(small.seen);
+                    while (!small.queue.isEmpty()) big.queue.enqueue(small.queue.dequeueLong());
+                    small.dead = true;
+                    live--;
+                    cur = big;
+                }
+            }
+            // s が吸収された場合、吸収先は既に rr に居る
+            if (!s.dead) rr.add(s);
+        }
+        // 最後に残った探索の範囲（と未探索の残り）は元の成分のまま
+    }
+
+    private void splitOff(Component from, LongOpenHashSet part) {
+        Component nc = new Component(nextId++, part);
+        from.nodes.removeAll(part);
+        for (LongIterator it = part.iterator(); it.hasNext(); ) posToId.put(it.nextLong(), nc.id);
+        components.put(nc.id, nc);
+        changed.add(nc.id);
+        changed.add(from.id);
+        splits++;
+    }
+
+    long getMerges() { return merges; }
+
+    long getSplits() { return splits; }
+
+    /** remove 時の局所探索で訪れたノード数の累計（成分サイズより十分小さいはず） */
+    long getSearchVisited() { return searchVisited; }
+}
@@ -0,0 +1,215 @@
+package com.infinitymax.industry.network;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ByteFunction;
+import it.unimi.dsi.fastutil.longs.Long2DoubleFunction;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongPredicate;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 導体（ケーブル / 配管）の直線区間を 1 本の辺に縮約したネットワークモデル
+ *
+ * - 端点（terminal）: 導体でないノード（機械・発電機・タンク等）と、次数が 2 でない導体（分岐・端）
+ * - 辺（edge）:       端点間をつなぐ次数 2 の導体の連なり。抵抗は直列和、容量は最小値
+ * - ソルバは端点と辺だけを見ればよい（長い送電線でも入力は端点数 + 辺数）
+ * - 導体 1 ブロックごとの状態（表示電圧など）は locate() で辺上の位置を引いて、問い合わせ時に補間する
+ * - 隣接は NetworkGraph の辺ルール（接続面マスク）で判定する
+ * - level / BE には触らない。導体判定・抵抗・容量・マスクは呼び出し側が関数で渡す
+ */
+public final class ContractedGraph {
+
+    private static final Direction[] DIRS = Direction.values();
+
+    private final long[] terminals;
+    private final Long2IntOpenHashMap terminalIndex;
+    private final int[] edgeA;
+    private final int[] edgeB;
+    private final double[] edgeR;
+    private final double[] edgeCap;
+    private final long[][] edgeChain;
+    // 区間内各導体の「端点 A から中心までの抵抗」
+    private final double[][] edgeChainR;
+    // 縮約された導体 -> 辺 ID
+    private final Long2IntOpenHashMap conductorEdge;
+
+    private ContractedGraph(long[] terminals, Long2IntOpenHashMap terminalIndex,
+                            int[] edgeA, int[] edgeB, double[] edgeR, double[] edgeCap,
+                            long[][] edgeChain, double[][] edgeChainR, Long2IntOpenHashMap conductorEdge) {
+        this.terminals = terminals;
+        this.terminalIndex = terminalIndex;
+        this.edgeA = edgeA;
+        this.edgeB = edgeB;
+        this.edgeR = edgeR;
+        this.edgeCap = edgeCap;
+        this.edgeChain = edgeChain;
+        this.edgeChainR = edgeChainR;
+        this.conductorEdge = conductorEdge;
+    }
+
+    /**
+     * @param nodes       ネットワークの全ノード（BlockPos.asLong()）
+     * @param conductor   縮約してよい導体か
+     * @param resistance  導体 1 ブロックの抵抗（辺の抵抗はこの和）
+     * @param capacity    導体 1 ブロックの容量（辺の容量はこの最小値）
+     */
+    public static ContractedGraph build(LongSet nodes, LongPredicate conductor,
+                                        Long2DoubleFunction resistance, Long2DoubleFunction capacity) {
+        return build(nodes, k -> NetworkGraph.ALL_SIDES, NetworkGraph.MUTUAL, conductor, resistance, capacity);
+    }
+
+    /**
+     * @param masks  ノードの接続面マスク（NetworkGraph.sideMask）
+     * @param rule   辺ルール
+     */
+    public static ContractedGraph build(LongSet nodes, Long2ByteFunction masks, NetworkGraph.EdgeRule rule,
+                                        LongPredicate conductor,
+                                        Long2DoubleFunction resistance, Long2DoubleFunction capacity) {
+        // 1) 端点を決める
+        LongArrayList termList = new LongArrayList();
+        Long2IntOpenHashMap termIndex = new Long2IntOpenHashMap();
+        termIndex.defaultReturnValue(-1);
+        for (LongIterator it = nodes.iterator(); it.hasNext(); ) {
+            long k = it.nextLong();
+            if (!conductor.test(k) || degree(nodes, masks, rule, k) != 2) {
+                termIndex.put(k, termList.size());
+                termList.add(k);
+            }
+        }
+
+        // 2) 各端点から隣へ歩き、次数 2 の導体の連なりを 1 辺にまとめる
+        IntArrayList ea = new IntArrayList(), eb = new IntArrayList();
+        DoubleArrayList er = new DoubleArrayList(), ec = new DoubleArrayList();
+        List<long[]> chains = new ArrayList<>();
+        List<double[]> chainR = new ArrayList<>();
+        Long2IntOpenHashMap condEdge = new Long2IntOpenHashMap();
+        condEdge.defaultReturnValue(-1);
+        LongOpenHashSet walked = new LongOpenHashSet();
+        LongArrayList chain = new LongArrayList();
+        DoubleArrayList mids = new DoubleArrayList();
+
+        for (int a = 0; a < termList.size(); a++) {
+            long t = termList.getLong(a);
+            for (Direction d : DIRS) {
+                long n = BlockPos.offset(t, d);
+                if (!linked(nodes, masks, rule, t, d, n)) continue;
+                int bIdx = termIndex.get(n);
+                if (bIdx >= 0) {
+                    // 端点同士が直接隣接: 抵抗 0 の辺（重複を避けて片側からだけ張る）
+                    if (a < bIdx) addEdge(ea, eb, er, ec, chains, chainR, a, bIdx, 0.0, Double.MAX_VALUE, new long[0], new double[0]);
+                    continue;
+                }
+                if (walked.contains(n)) continue; // 反対側の端点から既に歩いた
+
+                chain.clear();
+                mids.clear();
+                double r = 0.0, cap = Double.MAX_VALUE;
+                long prev = t, cur = n;
+                int end = -1;
+                while (true) {
+                    walked.add(cur);
+                    chain.add(cur);
+                    double rk = resistance.get(cur);
+                    mids.add(r + rk * 0.5);
+                    r += rk;
+                    cap = Math.min(cap, capacity.get(cur));
+                    long next = otherNeighbor(nodes, masks, rule, cur, prev);
+                    prev = cur;
+                    cur = next;
+                    end = termIndex.get(cur);
+                    if (end >= 0) break;
+                    if (walked.contains(cur)) break; // 端点を含まない輪（ここには来ない想定）
+                }
+                if (end < 0) continue;
+                int e = addEdge(ea, eb, er, ec, chains, chainR, a, end, r, cap, chain.toLongArray(), mids.toDoubleArray());
+                for (int i = 0; i < chain.size(); i++) condEdge.put(chain.getLong(i), e);
+            }
+        }
+
+        return new ContractedGraph(termList.toLongArray(), termIndex,
+                ea.toIntArray(), eb.toIntArray(), er.toDoubleArray(), ec.toDoubleArray(),
+                chains.toArray(new long[0][]), chainR.toArray(new double[0][]), condEdge);
+    }
+
+    private static int addEdge(IntArrayList ea, IntArrayList eb, DoubleArrayList er, DoubleArrayList ec,
+                               List<long[]> chains, List<double[]> chainR,
+                               int a, int b, double r, double cap, long[] chain, double[] mids) {
+        ea.add(a);
+        eb.add(b);
+        er.add(r);
+        ec.add(cap);
+        chains.add(chain);
+        chainR.add(mids);
+        return ea.size() - 1;
+    }
+
+    private static boolean linked(LongSet nodes, Long2ByteFunction masks, NetworkGraph.EdgeRule rule, long k, Direction d, long n) {
+        return nodes.contains(n) && rule.connects(masks.get(k), d, masks.get(n));
+    }
+
+    private static int degree(LongSet nodes, Long2ByteFunction masks, NetworkGraph.EdgeRule rule, long k) {
+        int deg = 0;
+        for (Direction d : DIRS) if (linked(nodes, masks, rule, k, d, BlockPos.offset(k, d))) deg++;
+        return deg;
+    }
+
+    // 次数 2 の導体の「prev でない方」の隣
+    private static long otherNeighbor(LongSet nodes, Long2ByteFunction masks, NetworkGraph.EdgeRule rule, long k, long prev) {
+        for (Direction d : DIRS) {
+            long n = BlockPos.offset(k, d);
+            if (n != prev && linked(nodes, masks, rule, k, d, n)) return n;
+        }
+        return prev;
+    }
+
+    // -------------------------
+    // 参照
+    // -------------------------
+    public int terminalCount() { return terminals.length; }
+
+    public long terminalKey(int i) { return terminals[i]; }
+
+    /** 端点番号。端点でなければ -1 */
+    public int terminalIndex(long key) { return terminalIndex.get(key); }
+
+    public int edgeCount() { return edgeA.length; }
+
+    public int edgeA(int e) { return edgeA[e]; }
+
+    public int edgeB(int e) { return edgeB[e]; }
+
+    /** 辺の直列抵抗 */
+    public double edgeResistance(int e) { return edgeR[e]; }
+
+    /** 辺の容量（区間内の最小値） */
+    public double edgeCapacity(int e) { return edgeCap[e]; }
+
+    /** 縮約された導体が乗っている辺。縮約されていなければ -1 */
+    public int locate(long key) { return conductorEdge.get(key); }
+
+    /**
+     * 辺上の導体の位置を、端点 A からの抵抗の割合（0..1）で返す。
+     * 問い合わせ時にだけ区間を走査する（毎 tick は呼ばれない前提）
+     */
+    public double fractionAlong(int e, long key) {
+        long[] chain = edgeChain[e];
+        double total = edgeR[e];
+        if (total <= 0.0) return 0.5;
+        for (int i = 0; i < chain.length; i++) {
+            if (chain[i] == key) return edgeChainR[e][i] / total;
+        }
+        return 0.5;
+    }
+
+    /** 縮約で消えたノード数（= 元のノード数 - 端点数） */
+    public int contractedCount() { return conductorEdge.size(); }
+}
@@ -9,9 +9,13 @@ public interface INetworkNode {
     BlockPos getPosition();
     Level getLevel();
 
-    /** 隣接ノードの座標を返す */
+    /**
+     * 隣接ノードの座標を返す
+     * NetworkGraph はこのうち隣接 6 方向にあるものだけを接続面として使う（それ以外の面はつながらない）
+     * 接続面が変わったら markXxxDirty で再評価させること
+     */
     List<BlockPos> getConnectedPositions();
 
-    /** ネットワーク再構築時に呼ばれるフック */
+    /** ネットワーク再構築時に呼ばれるフック（tick の再構築相の最後にまとめて、1 tick 1 回まで） */
     default void onGraphRebuild() {}
 }
\ No newline at end of file
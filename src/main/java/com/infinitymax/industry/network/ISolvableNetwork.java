@@ -0,0 +1,28 @@
+package com.infinitymax.industry.network;
+
+import net.minecraft.world.level.Level;
+
+/**
+ * tick を 3 相に分けたネットワーク（FluidNetwork / ElectricNetwork）
+ *
+ * - prepare(level): メインスレッド。BE から値を読み、ネットワーク内のスナップショットに写す
+ * - solve():        任意スレッド。スナップショットだけを使って配分を計算する（BE / level に触らない）
+ * - apply(level):   メインスレッド。計算結果を BE に反映する
+ *
+ * 互いに素なネットワーク同士は solve() を並列に回してよい。apply はネットワークリスト順に行うので結果は決定的。
+ */
+public interface ISolvableNetwork {
+
+    void prepare(Level level);
+
+    void solve();
+
+    void apply(Level level);
+
+    /** 逐次実行用: 3 相をまとめて回す */
+    default void tick(Level level) {
+        prepare(level);
+        solve();
+        apply(level);
+    }
+}
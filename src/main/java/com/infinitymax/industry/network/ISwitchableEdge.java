@@ -0,0 +1,20 @@
+package com.infinitymax.industry.network;
+
+import net.minecraft.world.level.Level;
+
+/**
+ * 開閉できる辺（ブレーカー・スイッチ・バルブ等）
+ *
+ * - 閉じている間は普通のノードとして両隣をつなぐ。開くと NetworkGraph.sideMask が 0 になり、どの面ともつながらない
+ * - 開閉したら SmartNetworkManager の markXxxSwitched を呼ぶ。デバウンスなしで次 tick に反映され、
+ *   増分エンジンは切れた側（小さい方）だけを局所探索で切り出す（全 flood しない）
+ * - ネットワークは毎 tick、ノードを通った量（電流[A] / 流量）を onThroughFlow で知らせる
+ */
+public interface ISwitchableEdge {
+
+    /** true なら導通（閉） */
+    boolean isClosed();
+
+    /** 直近 tick にこのノードを通った量。トリップ判定などに使う（ネットワークの apply 相から呼ばれる） */
+    default void onThroughFlow(Level level, double amount) {}
+}
@@ -0,0 +1,134 @@
+package com.infinitymax.industry.network;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 1 level 分のネットワーク状態（SmartNetworkManager が level ごとに 1 個持つ）
+ *
+ * - 種類（fluid / electric）ごとの KindState と、level 共通の tick 管理・フック・トポロジ保存先
+ * - 中身を触るのはその level の tick スレッドだけ。manager は ConcurrentHashMap で level -> 状態を引くので、
+ *   別ディメンションのスレッドから同時に来ても互いの状態には触れない
+ * - level のアンロードで manager から外され、丸ごと GC される（Level への強参照を残さない）
+ */
+final class LevelNetworkState {
+
+    // 再構築コスト EWMA の初期値（初回は 1ms と見積もる）
+    static final double INITIAL_REBUILD_COST_NANOS = 1_000_000.0;
+
+    /** 復元したが、まだ内容ハッシュを確かめていないチャンク */
+    static final class PendingChunks {
+        final Long2LongOpenHashMap hashes = new Long2LongOpenHashMap();
+        final LongArrayFIFOQueue sweep = new LongArrayFIFOQueue();
+    }
+
+    /** 1 種類分の状態と、その種類のネットワークの作り方 */
+    static final class KindState<N extends ISolvableNetwork> {
+        final NetworkGraph kind;
+        final Function<LongSet, N> factory;
+        final BiFunction<ServerLevel, Set<BlockPos>, List<N>> discoverFrom;
+        final Function<ServerLevel, List<N>> discoverAll;
+        final Function<N, LongSet> nodesOf;
+        final Consumer<N> invalidate;
+
+        // 連結成分エンジン（mark 時に更新。全モード共通のノード集合でもある）
+        final ConnectivityEngine graph;
+        // チャンク別ノード索引（discoverAll 用）
+        final ChunkNodeIndex nodeIndex = new ChunkNodeIndex();
+        // 構築済みネットワーク + 座標索引
+        final NetworkIndex<N> networks;
+        // INetworkNode を実装するノードの座標（onGraphRebuild の対象）
+        final LongOpenHashSet hookNodes = new LongOpenHashSet();
+        // flood 系の dirty origin（重複なし。null は「全再構築」）とデバウンス残り（0 = 要求なし）
+        final LinkedHashSet<BlockPos> dirtyOrigins = new LinkedHashSet<>();
+        int debounce = 0;
+        // mark で積まれ、次の serverTick の最初に反映する座標（BlockPos.asLong()）と、反映中の作業用リスト
+        final LongOpenHashSet queuedMarks = new LongOpenHashSet();
+        final LongArrayList markBatch = new LongArrayList();
+        // 復元済み未検証チャンク（復元しなければ null）
+        PendingChunks pending;
+        // 同期再構築 1 回（1 グループ）あたりの実測コストの EWMA（ナノ秒）
+        double rebuildCostNanos = INITIAL_REBUILD_COST_NANOS;
+
+        KindState(NetworkGraph kind, Function<LongSet, N> factory,
+                  BiFunction<ServerLevel, Set<BlockPos>, List<N>> discoverFrom,
+                  Function<ServerLevel, List<N>> discoverAll,
+                  Function<N, LongSet> nodesOf, Consumer<N> invalidate) {
+            this.kind = kind;
+            this.factory = factory;
+            this.discoverFrom = discoverFrom;
+            this.discoverAll = discoverAll;
+            this.nodesOf = nodesOf;
+            this.invalidate = invalidate;
+            this.graph = new ConnectivityEngine(kind.rule());
+            this.networks = new NetworkIndex<>(nodesOf);
+        }
+
+        void clearDirty() {
+            dirtyOrigins.clear();
+            debounce = 0;
+        }
+
+        /** おおよそのヒープ使用量（バイト）。fastutil のハッシュは 1 要素あたり (キー + 値) / 負荷率 0.75 で見積もる */
+        long estimateHeapBytes() {
+            long bytes = 0L;
+            int nodes = graph.size();
+            bytes += nodes * (long) ((8 + 4) / 0.75);   // エンジン: 座標 -> 成分 ID
+            bytes += nodes * (long) ((8 + 1) / 0.75);   // エンジン: 接続面マスク
+            bytes += nodes * (long) (8 / 0.75);         // エンジン: 成分のノード集合
+            bytes += nodeIndex.size() * (long) (8 / 0.75);
+            bytes += hookNodes.size() * (long) (8 / 0.75);
+            bytes += queuedMarks.size() * (long) (8 / 0.75);
+            bytes += networks.indexedSize() * (long) ((8 + 4) / 0.75);
+            for (N n : networks.list()) bytes += nodesOf.apply(n).size() * (long) (8 / 0.75) + 256L;
+            bytes += dirtyOrigins.size() * 64L;          // BlockPos + LinkedHashMap のエントリ
+            if (pending != null) bytes += pending.hashes.size() * (long) ((8 + 8) / 0.75) + pending.sweep.size() * 8L;
+            return bytes;
+        }
+    }
+
+    final KindState<com.infinitymax.industry.fluid.FluidNetwork> fluid = new KindState<>(
+            com.infinitymax.industry.fluid.FluidNetwork.GRAPH,
+            com.infinitymax.industry.fluid.FluidNetwork::new,
+            com.infinitymax.industry.fluid.FluidNetwork::discoverFromOrigins,
+            com.infinitymax.industry.fluid.FluidNetwork::discoverAll,
+            com.infinitymax.industry.fluid.FluidNetwork::getNodeKeys,
+            com.infinitymax.industry.fluid.FluidNetwork::invalidateResolved);
+
+    final KindState<com.infinitymax.industry.energy.ElectricNetwork> electric = new KindState<>(
+            com.infinitymax.industry.energy.ElectricNetwork.GRAPH,
+            com.infinitymax.industry.energy.ElectricNetwork::new,
+            com.infinitymax.industry.energy.ElectricNetwork::discoverFromOrigins,
+            com.infinitymax.industry.energy.ElectricNetwork::discoverAll,
+            com.infinitymax.industry.energy.ElectricNetwork::getNodeKeys,
+            com.infinitymax.industry.energy.ElectricNetwork::invalidateResolved);
+
+    // 最後にネットワーク相を回した gameTime（1 level 1 tick 1 回の保証用）と回した回数
+    long lastTickedGameTime = Long.MIN_VALUE;
+    long networkTickRuns = 0;
+
+    // この tick で作り直したネットワークに含まれるフック対象（再構築相の最後に発火して空にする）
+    final LongOpenHashSet pendingHooks = new LongOpenHashSet();
+
+    // トポロジ保存先（初回アクセスで取得。取得できなかった level は null のまま）
+    NetworkTopologyData topology;
+    boolean topologyChecked = false;
+
+    KindState<?> kind(boolean electricKind) {
+        return electricKind ? electric : fluid;
+    }
+
+    long estimateHeapBytes() {
+        return fluid.estimateHeapBytes() + electric.estimateHeapBytes() + pendingHooks.size() * (long) (8 / 0.75);
+    }
+}
@@ -1,60 +1,168 @@
 package com.infinitymax.industry.network;
 
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.core.BlockPos;
-import net.minecraft.server.level.ServerLevel;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
 
 import java.util.*;
+import java.util.function.Predicate;
 
-public class NetworkGraph {
+/**
+ * 流体・電力（と今後のネットワーク）で共有するグラフエンジン
+ *
+ * - ノード判定（isNode）と辺ルール（EdgeRule）で種類ごとにパラメータ化する
+ * - 接続面は 6 方向すべてとは限らない: INetworkNode なら getConnectedPositions() のうち隣接するものだけ、
+ *   それ以外の BE は 6 面。面の集合は 6 bit のマスク（sideMask）で持つ
+ * - 開いている ISwitchableEdge は 0 面（ノードのまま孤立する）
+ * - 既定の辺ルール MUTUAL: 双方のマスクが向かい合う面を含むときだけつながる
+ * - 座標は BlockPos.asLong()、visited / キューはプリミティブコレクション
+ * - 未ロードのチャンクは辿らない（getBlockEntity による同期ロードを避ける）
+ * - 再構築後のフック（INetworkNode.onGraphRebuild）は fireRebuildHooks でまとめて 1 回ずつ呼ぶ
+ */
+public final class NetworkGraph {
 
-    private final ServerLevel level;
-    private final Map<BlockPos, INetworkNode> nodes = new HashMap<>();
-    private final List<Set<INetworkNode>> components = new ArrayList<>();
+    public static final byte ALL_SIDES = 0x3F;
+    private static final Direction[] DIRS = Direction.values();
 
-    public NetworkGraph(ServerLevel level) {
-        this.level = level;
+    /** 隣接する 2 ノード（from から d 方向に to）の間に辺を張るか */
+    @FunctionalInterface
+    public interface EdgeRule {
+        boolean connects(byte fromMask, Direction d, byte toMask);
     }
 
-    /** ノード探索してグラフを構築 */
-    public void rebuild() {
-        nodes.clear();
-        components.clear();
+    public static final EdgeRule MUTUAL = (a, d, b) -> (a & bit(d)) != 0 && (b & bit(d.getOpposite())) != 0;
 
-        // レベル内の BlockEntity を走査（効率を考えて専用リストにしても良い）
-        for (var be : level.blockEntityList) {
-            if (be instanceof INetworkNode node) {
-                nodes.put(be.getBlockPos(), node);
+    private final Predicate<BlockEntity> isNode;
+    private final EdgeRule rule;
+
+    public NetworkGraph(Predicate<BlockEntity> isNode, EdgeRule rule) {
+        this.isNode = isNode;
+        this.rule = rule;
+    }
+
+    public static int bit(Direction d) {
+        return 1 << d.get3DDataValue();
+    }
+
+    /** BE の接続面マスク。INetworkNode なら getConnectedPositions() の隣接分だけ、そうでなければ 6 面。開いたスイッチは 0 */
+    public static byte sideMask(BlockEntity be) {
+        if (be instanceof ISwitchableEdge sw && !sw.isClosed()) return 0;
+        if (!(be instanceof INetworkNode node)) return ALL_SIDES;
+        BlockPos self = be.getBlockPos();
+        int mask = 0;
+        for (BlockPos p : node.getConnectedPositions()) {
+            for (Direction d : DIRS) {
+                if (self.relative(d).equals(p)) {
+                    mask |= bit(d);
+                    break;
+                }
             }
         }
+        return (byte) mask;
+    }
+
+    public EdgeRule rule() {
+        return rule;
+    }
+
+    public boolean isNode(BlockEntity be) {
+        return be != null && !be.isRemoved() && isNode.test(be);
+    }
 
-        // コンポーネント分割（BFS）
-        Set<BlockPos> visited = new HashSet<>();
-        for (var entry : nodes.entrySet()) {
-            if (visited.contains(entry.getKey())) continue;
+    public boolean connects(byte fromMask, Direction d, byte toMask) {
+        return rule.connects(fromMask, d, toMask);
+    }
 
-            Set<INetworkNode> comp = new HashSet<>();
-            Queue<BlockPos> queue = new ArrayDeque<>();
-            queue.add(entry.getKey());
+    // level 上のノードならその BE、違えば null（未ロードも null）
+    private BlockEntity nodeAt(Level level, BlockPos.MutableBlockPos cursor, long key) {
+        cursor.set(key);
+        if (!level.isLoaded(cursor)) return null;
+        BlockEntity be = level.getBlockEntity(cursor);
+        return isNode(be) ? be : null;
+    }
 
-            while (!queue.isEmpty()) {
-                BlockPos pos = queue.poll();
-                if (!visited.add(pos)) continue;
+    // -------------------------
+    // level 上の flood
+    // -------------------------
+    public LongOpenHashSet flood(Level level, long start) {
+        LongOpenHashSet visited = new LongOpenHashSet();
+        LongArrayFIFOQueue q = new LongArrayFIFOQueue();
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        BlockEntity s = nodeAt(level, cursor, start);
+        if (s == null) return visited;
+        visited.add(start);
+        q.enqueue(start);
+        while (!q.isEmpty()) {
+            long p = q.dequeueLong();
+            BlockEntity pbe = nodeAt(level, cursor, p);
+            if (pbe == null) continue;
+            byte pm = sideMask(pbe);
+            for (Direction d : DIRS) {
+                if ((pm & bit(d)) == 0) continue;
+                long n = BlockPos.offset(p, d);
+                if (visited.contains(n)) continue;
+                BlockEntity nbe = nodeAt(level, cursor, n);
+                if (nbe == null || !rule.connects(pm, d, sideMask(nbe))) continue;
+                visited.add(n);
+                q.enqueue(n);
+            }
+        }
+        return visited;
+    }
 
-                INetworkNode node = nodes.get(pos);
-                if (node == null) continue;
-                comp.add(node);
+    /** 起点集合を含む連結成分（起点がノードでなければ無視） */
+    public List<LongOpenHashSet> discoverFrom(Level level, Collection<BlockPos> origins) {
+        List<LongOpenHashSet> out = new ArrayList<>();
+        LongOpenHashSet visited = new LongOpenHashSet();
+        for (BlockPos origin : origins) {
+            long k = origin.asLong();
+            if (visited.contains(k)) continue;
+            LongOpenHashSet comp = flood(level, k);
+            if (!comp.isEmpty()) {
+                visited.addAll(comp);
+                out.add(comp);
+            }
+        }
+        return out;
+    }
 
-                for (BlockPos npos : node.getConnectedPositions()) {
-                    if (!visited.contains(npos) && nodes.containsKey(npos)) {
-                        queue.add(npos);
-                    }
-                }
+    /** 既知ノード集合（チャンク別ノード索引）から全連結成分を求める */
+    public List<LongOpenHashSet> discoverAll(Level level, LongSet known) {
+        List<LongOpenHashSet> out = new ArrayList<>();
+        LongOpenHashSet visited = new LongOpenHashSet();
+        for (LongIterator it = known.iterator(); it.hasNext(); ) {
+            long k = it.nextLong();
+            if (visited.contains(k)) continue;
+            LongOpenHashSet comp = flood(level, k);
+            if (!comp.isEmpty()) {
+                visited.addAll(comp);
+                out.add(comp);
             }
-            components.add(comp);
         }
+        return out;
     }
 
-    public List<Set<INetworkNode>> getComponents() {
-        return components;
+    // -------------------------
+    // 再構築フック（まとめ呼び出し）
+    //   同じ tick に何度作り直されても、1 ノードにつき 1 回だけ呼ぶ
+    // -------------------------
+    public static int fireRebuildHooks(Level level, LongCollection keys) {
+        int fired = 0;
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (LongIterator it = keys.iterator(); it.hasNext(); ) {
+            cursor.set(it.nextLong());
+            if (!level.isLoaded(cursor)) continue;
+            if (level.getBlockEntity(cursor) instanceof INetworkNode node && !((BlockEntity) node).isRemoved()) {
+                node.onGraphRebuild();
+                fired++;
+            }
+        }
+        return fired;
     }
-}
\ No newline at end of file
+}
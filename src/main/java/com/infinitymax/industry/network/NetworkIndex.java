@@ -0,0 +1,110 @@
+package com.infinitymax.industry.network;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 1 level・1 種類分の構築済みネットワーク保持 + 座標索引
+ *
+ * - byId:     ネットワーク ID -> ネットワーク（挿入順 = tick 順）
+ * - posToId:  BlockPos.asLong() -> ネットワーク ID（0 = どこにも属さない）
+ * - flood 系の再構築は replaceTouching() で「触れた座標が属する ID」だけを外して差し替える
+ *   既存ネットワーク全部と Collections.disjoint を取る必要はない
+ * - 増分連結モードでは ID は ConnectivityEngine の成分 ID。座標索引はエンジン側が持つので
+ *   putComponent / removeComponent は posToId に触らない
+ */
+final class NetworkIndex<N> {
+
+    private final Function<N, LongSet> nodesOf;
+    private final Map<Integer, N> byId = new LinkedHashMap<>();
+    private final Long2IntOpenHashMap posToId = new Long2IntOpenHashMap();
+    private int nextId = 1;
+
+    // tick 用リスト（変更があった時だけ作り直す）
+    // 他スレッドからの参照（getFluidNetworks 等）でも完成済みのリストが見えるよう volatile
+    private volatile List<N> list = Collections.emptyList();
+    private boolean listDirty = false;
+
+    NetworkIndex(Function<N, LongSet> nodesOf) {
+        this.nodesOf = nodesOf;
+        posToId.defaultReturnValue(0);
+    }
+
+    /** flood 系で作ったネットワークの座標 -> ID。見つからなければ 0 */
+    int idAt(BlockPos pos) {
+        return posToId.get(pos.asLong());
+    }
+
+    N get(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * touched のいずれかを含む既存ネットワークを外し、found を追加する。
+     * コストは O(touched + 外したネットワークのノード数 + found のノード数)
+     */
+    void replaceTouching(LongCollection touched, List<N> found) {
+        IntOpenHashSet hit = new IntOpenHashSet();
+        for (LongIterator it = touched.iterator(); it.hasNext(); ) {
+            int id = posToId.get(it.nextLong());
+            if (id != 0) hit.add(id);
+        }
+        for (int id : hit) {
+            N old = byId.remove(id);
+            if (old == null) continue;
+            for (LongIterator it = nodesOf.apply(old).iterator(); it.hasNext(); ) {
+                long k = it.nextLong();
+                // 既に別 ID で上書きされた座標は残す
+                if (posToId.get(k) == id) posToId.remove(k);
+            }
+        }
+        for (N n : found) {
+            int id = nextId++;
+            byId.put(id, n);
+            for (LongIterator it = nodesOf.apply(n).iterator(); it.hasNext(); ) posToId.put(it.nextLong(), id);
+        }
+        if (!hit.isEmpty() || !found.isEmpty()) listDirty = true;
+    }
+
+    // ---- 増分連結モード（ID は外部 = 成分 ID） ----
+    void putComponent(int id, N n) {
+        byId.put(id, n);
+        listDirty = true;
+    }
+
+    void removeComponent(int id) {
+        if (byId.remove(id) != null) listDirty = true;
+    }
+
+    void clear() {
+        byId.clear();
+        posToId.clear();
+        list = Collections.emptyList();
+        listDirty = false;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    /** 座標索引の件数（flood 系のみ。増分モードでは 0） */
+    int indexedSize() {
+        return posToId.size();
+    }
+
+    /** tick 順のネットワーク一覧（読み取り専用） */
+    List<N> list() {
+        if (listDirty) {
+            list = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+            listDirty = false;
+        }
+        return list;
+    }
+}
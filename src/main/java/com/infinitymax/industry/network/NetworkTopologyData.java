@@ -0,0 +1,126 @@
+package com.infinitymax.industry.network;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.saveddata.SavedData;
+
+/**
+ * ネットワークトポロジの永続化（level ごとの SavedData）
+ *
+ * - 種類（fluid / electric）ごとに、チャンク単位でまとめたノード座標・接続面マスク・成分 ID を持つ
+ * - 形式は NBT の Long / Int / Byte 配列だけ（1 ノードあたり 8 + 4 + 1 byte）
+ * - チャンクごとに内容ハッシュ（chunkHash）を保存する。起動時はトポロジをそのまま信用し、
+ *   チャンクがロードされたときにハッシュだけを突き合わせ、食い違ったチャンクだけを作り直す
+ * - 中身の書き出しは保存時に SmartNetworkManager.captureTopology が行う（変更のたびには作らない）
+ * - level のアンロード後は freeze で固定した内容を書く
+ */
+public final class NetworkTopologyData extends SavedData {
+
+    public static final String NAME = "infinitymax_network_topology";
+    private static final int VERSION = 1;
+
+    /** 1 種類分の保存内容。nodes / masks / comps は chunks の順に counts 個ずつ並ぶ */
+    static final class Section {
+        long[] chunks = new long[0];
+        long[] hashes = new long[0];
+        int[] counts = new int[0];
+        long[] nodes = new long[0];
+        byte[] masks = new byte[0];
+        int[] comps = new int[0];
+
+        boolean isEmpty() {
+            return nodes.length == 0;
+        }
+
+        void write(CompoundTag tag) {
+            tag.putLongArray("chunks", chunks);
+            tag.putLongArray("hashes", hashes);
+            tag.putIntArray("counts", counts);
+            tag.putLongArray("nodes", nodes);
+            tag.putByteArray("masks", masks);
+            tag.putIntArray("comps", comps);
+        }
+
+        static Section read(CompoundTag tag) {
+            Section s = new Section();
+            s.chunks = tag.getLongArray("chunks");
+            s.hashes = tag.getLongArray("hashes");
+            s.counts = tag.getIntArray("counts");
+            s.nodes = tag.getLongArray("nodes");
+            s.masks = tag.getByteArray("masks");
+            s.comps = tag.getIntArray("comps");
+            // 長さが合わなければ壊れているとみなして捨てる（全ノードが onLoad の mark で作り直される）
+            int total = 0;
+            for (int c : s.counts) total += c;
+            if (s.hashes.length != s.chunks.length || s.counts.length != s.chunks.length
+                    || s.nodes.length != total || s.masks.length != total || s.comps.length != total) {
+                return new Section();
+            }
+            return s;
+        }
+    }
+
+    private final ServerLevel level;
+    private Section fluid = new Section();
+    private Section electric = new Section();
+    // level のアンロード時に写した内容（以後の save は manager ではなくこれを書く）
+    private Section frozenFluid;
+    private Section frozenElectric;
+
+    private NetworkTopologyData(ServerLevel level) {
+        this.level = level;
+    }
+
+    public static NetworkTopologyData get(ServerLevel level) {
+        return level.getDataStorage().computeIfAbsent(
+                tag -> load(level, tag), () -> new NetworkTopologyData(level), NAME);
+    }
+
+    private static NetworkTopologyData load(ServerLevel level, CompoundTag tag) {
+        NetworkTopologyData data = new NetworkTopologyData(level);
+        if (tag.getInt("version") != VERSION) return data;
+        data.fluid = Section.read(tag.getCompound("fluid"));
+        data.electric = Section.read(tag.getCompound("electric"));
+        return data;
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag) {
+        tag.putInt("version", VERSION);
+        CompoundTag f = new CompoundTag();
+        CompoundTag e = new CompoundTag();
+        if (frozenFluid != null) {
+            frozenFluid.write(f);
+            frozenElectric.write(e);
+        } else {
+            SmartNetworkManager.get().captureTopology(level, false).write(f);
+            SmartNetworkManager.get().captureTopology(level, true).write(e);
+        }
+        tag.put("fluid", f);
+        tag.put("electric", e);
+        return tag;
+    }
+
+    /** 読み込んだ内容を 1 回だけ渡す（以後は保持しない） */
+    Section takeSection(boolean electricKind) {
+        Section s = electricKind ? electric : fluid;
+        if (electricKind) electric = new Section();
+        else fluid = new Section();
+        return s;
+    }
+
+    /** level のアンロード時に manager から呼ばれる。manager が状態を手放した後の保存でも空を書かないよう内容を固定する */
+    void freeze(Section fluidSection, Section electricSection) {
+        frozenFluid = fluidSection;
+        frozenElectric = electricSection;
+        setDirty();
+    }
+
+    // -------------------------
+    // チャンク内容ハッシュ（順序に依らない和）
+    // -------------------------
+    static long nodeHash(long key, byte mask) {
+        return HashCommon.murmurHash3(HashCommon.murmurHash3(key) + mask);
+    }
+}
@@ -0,0 +1,42 @@
+package com.infinitymax.industry.network;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * BlockPos.asLong() で詰めた LongSet を読み取り専用の Set&lt;BlockPos&gt; として見せるビュー
+ *
+ * - 互換用（getNodePositions() など、従来 Set&lt;BlockPos&gt; を返していた API 向け）
+ * - 反復のたびに BlockPos を生成するので、ホットパスでは LongSet を直接回すこと
+ */
+public final class PackedPosView extends AbstractSet<BlockPos> {
+
+    private final LongSet keys;
+
+    public PackedPosView(LongSet keys) {
+        this.keys = keys;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof BlockPos p && keys.contains(p.asLong());
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public Iterator<BlockPos> iterator() {
+        LongIterator it = keys.iterator();
+        return new Iterator<>() {
+            @Override public boolean hasNext() { return it.hasNext(); }
+            @Override public BlockPos next() { return BlockPos.of(it.nextLong()); }
+        };
+    }
+}
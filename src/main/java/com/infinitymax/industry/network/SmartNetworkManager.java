@@ -1,10 +1,27 @@
 package com.infinitymax.industry.network;
 
+import com.infinitymax.industry.tick.TickBudget;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * SmartNetworkManager
@@ -13,8 +30,27 @@ import java.util.*;
  * - Fluid/Electric を分離管理
  * - markXxxDirty(level, originPos) で「変更があったワールド＋起点座標」をキュー登録
  * - デバウンス（DEBOUNCE_TICKS）でまとめ、再構築を行う
- * - 1tick あたりの再構築数を制限（MAX_REBUILDS_PER_TICK）してスパイク抑制
+ * - dirty origin は重複を除いて保持し、同じチャンク・同じ既存ネットワークの起点はまとめて 1 回の discover にする
+ *   flood で覆われた残りの起点はキューから外す（1 成分につき 1 回だけ flood）
+ * - 1 tick の再構築量は件数ではなく時間で決める: 実測コストの EWMA を取り、残り予算に次の 1 回が収まる間だけ進める
+ * - 再構築は TickBudget の残り時間内でのみ追加実行（残りはキューに残して次 tick へ）
+ * - 既存ネットワークの配分（tick）はクリティカルなので予算に関係なく毎 tick 回す
+ * - 並列モード: 各ネットワークの solve を ForkJoin プールで並列計算し、apply はメインスレッドで順に行う
  * - rebuild 時は「origin set」から局所探索 (discoverFromOrigins)。origin が無い場合は discoverAll を実行
+ * - 構築済みネットワークは NetworkIndex（BlockPos.asLong() -> ネットワーク ID）で保持。差し替えは触れた ID だけ、
+ *   getFluidNetworkAt / getElectricNetworkAt は O(1)
+ * - mark は座標をキューに積むだけ（setRemoved・チャンクのアンロード中にも呼ばれるので、そこでは level / BE に触らない）。
+ *   次の serverTick の最初に、積まれた origin と隣接 6 方向のノード有無を ConnectivityEngine（増分連結成分）へ反映する
+ * - 増分モード（既定）: 変わった成分のネットワークだけを次の serverTick で作り直す（level の flood なし）
+ * - フォールバック（-Dinfinitymax.floodRebuild=true）: デバウンス後、時間予算の範囲で level を同期 flood して差し替える
+ * - ノード判定・隣接（接続面）は各ネットワークの NetworkGraph（FluidNetwork.GRAPH / ElectricNetwork.GRAPH）に従う
+ * - 作り直したネットワークに含まれる INetworkNode の onGraphRebuild は、tick の再構築相の最後にまとめて 1 回ずつ呼ぶ
+ * - トポロジは NetworkTopologyData（level の SavedData）に保存する。増分モードの起動時はそれをエンジンへ復元して信用し、
+ *   チャンクがロードされたら内容ハッシュだけ突き合わせる。食い違ったチャンクだけを作り直す（全 flood しない）
+ *   -Dinfinitymax.noTopologyCache=true で無効化
+ * - level ごとの状態は LevelNetworkState に 1 まとめにし、ConcurrentHashMap で持つ
+ * - 開閉する辺（ISwitchableEdge）は markXxxSwitched で知らせる。増分モードは切れた側だけ切り出し、flood 系もデバウンスしない
+ *   onLevelUnload(level) で丸ごと外す（トポロジはその前に SavedData へ写しておく）
  *
  * 使い方:
  * - 各 BE の onNeighborsChanged / onLoad / setRemoved 等で
@@ -22,8 +58,11 @@ import java.util.*;
  *   または
  *      NetworkManager.get().markElectricDirty(level, pos);
  *
- * - サーバワールド tick から毎 tick:
+ * - サーバワールド tick から毎 tick（TickDispatcher.tickLevel が呼ぶ。BE からは呼ばない）:
  *      NetworkManager.get().serverTick(level);
+ * - 同一 level・同一 gameTime での 2 回目以降の呼び出しは無視し、duplicateTickCalls に数える
+ * - level のアンロード時（LevelEvent.Unload）:
+ *      NetworkManager.get().onLevelUnload(level);
  */
 public final class SmartNetworkManager {
 
@@ -33,36 +72,394 @@ public final class SmartNetworkManager {
 
     // デバウンス設定（調整可）
     private static final int DEBOUNCE_TICKS = 4;
-    // 1 tick あたりの最大再構築数（過負荷防止）
-    private static final int MAX_REBUILDS_PER_TICK = 2;
+    // 再構築コスト EWMA の重み
+    private static final double REBUILD_COST_ALPHA = 0.2;
+    // 並列 tick を使う最小ネットワーク数（少ないとスレッド受け渡しの方が高くつく）
+    private static final int PARALLEL_MIN_NETWORKS = 16;
+    // 1 tick に検証を試みる未検証チャンク数の上限（未ロードのものは後ろへ回す）
+    private static final int VERIFY_CHUNKS_PER_TICK = 32;
 
-    // ワールド -> (origin positionsが入ったキュー)
-    private final Map<Level, Deque<BlockPos>> fluidDirtyOrigins = new HashMap<>();
-    private final Map<Level, Deque<BlockPos>> electricDirtyOrigins = new HashMap<>();
+    // 並列 tick モード（既定 off）
+    private volatile boolean parallelNetworkTick = Boolean.getBoolean("infinitymax.parallelNetworks");
+    private static volatile ForkJoinPool networkPool;
 
-    // ワールド -> 残りデバウンスカウント（全 origin 集合に対して共通）
-    private final Map<Level, Integer> fluidDebounce = new HashMap<>();
-    private final Map<Level, Integer> electricDebounce = new HashMap<>();
+    // 増分連結モード（既定 on。-Dinfinitymax.floodRebuild=true で flood 系の再構築に戻す）
+    private volatile boolean incrementalConnectivity = !Boolean.getBoolean("infinitymax.floodRebuild");
+    // トポロジ永続化（既定 on）
+    private volatile boolean topologyCache = !Boolean.getBoolean("infinitymax.noTopologyCache");
 
-    // 構築済みネットワーク保持（サーバ再起動しない限り）
-    private final Map<Level, List<com.infinitymax.industry.fluid.FluidNetwork>> fluidNetworks = new HashMap<>();
-    private final Map<Level, List<com.infinitymax.industry.energy.ElectricNetwork>> electricNetworks = new HashMap<>();
+    // level -> その level のネットワーク状態（アンロードで外す）
+    private final Map<Level, LevelNetworkState> states = new ConcurrentHashMap<>();
+    // アンロード済みの level（アンロード後に届く setRemoved からの mark で状態を作り直さないため。弱参照）
+    private final Set<Level> unloaded = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    // 統計（複数ディメンションのスレッドから加算されるので LongAdder）
+    private final LongAdder duplicateTickCalls = new LongAdder();
+    private final LongAdder rebuildHooksFired = new LongAdder();
+    private final LongAdder coalescedOrigins = new LongAdder();
+    private final LongAdder restoredNodes = new LongAdder();
+    private final LongAdder verifiedChunks = new LongAdder();
+    private final LongAdder mismatchedChunks = new LongAdder();
+    private final LongAdder unloadedLevels = new LongAdder();
+    // ネットワーク tick（逐次）でサーバスレッドが確保したバイト数。-Dinfinitymax.measureNetworkAllocation=true のときだけ測る
+    private final LongAdder networkTickSamples = new LongAdder();
+    private final LongAdder networkTickAllocatedBytes = new LongAdder();
+    private volatile boolean measureNetworkAllocation = Boolean.getBoolean("infinitymax.measureNetworkAllocation");
 
     private SmartNetworkManager() {}
 
+    // アンロード済みなら null
+    private LevelNetworkState state(Level level) {
+        LevelNetworkState st = states.get(level);
+        if (st != null) return st;
+        if (unloaded.contains(level)) return null;
+        return states.computeIfAbsent(level, k -> new LevelNetworkState());
+    }
+
     // -------------------------
     // 外部呼び出し API
     // -------------------------
     public void markFluidDirty(Level level, BlockPos origin) {
         if (level == null || level.isClientSide) return;
-        fluidDirtyOrigins.computeIfAbsent(level, k -> new ArrayDeque<>()).add(origin);
-        fluidDebounce.put(level, DEBOUNCE_TICKS);
+        LevelNetworkState st = state(level);
+        if (st != null) mark(st, st.fluid, origin);
     }
 
     public void markElectricDirty(Level level, BlockPos origin) {
         if (level == null || level.isClientSide) return;
-        electricDirtyOrigins.computeIfAbsent(level, k -> new ArrayDeque<>()).add(origin);
-        electricDebounce.put(level, DEBOUNCE_TICKS);
+        LevelNetworkState st = state(level);
+        if (st != null) mark(st, st.electric, origin);
+    }
+
+    /**
+     * ノードの容量（電圧・最大電流・優先度）が変わったことを所属ネットワークへ知らせる（トポロジは変わらない）。
+     * IElectricNode.reportsCapacityChanges() が true のノードは、変化のたびにこれを呼ぶ
+     */
+    public void markElectricCapacityChanged(Level level, BlockPos pos) {
+        if (level == null || level.isClientSide || pos == null) return;
+        com.infinitymax.industry.energy.ElectricNetwork n = getElectricNetworkAt(level, pos);
+        if (n != null) n.markCapacityDirty();
+    }
+
+    /** level 内の電力ネットワークの定常キャッシュ統計の合計: {tick 数, 使い回した tick 数, 容量変化で読み直した回数} */
+    public long[] getElectricSteadyStateStats(Level level) {
+        long[] out = new long[3];
+        for (var n : getElectricNetworks(level)) {
+            long[] s = n.getSteadyStateStats();
+            for (int i = 0; i < 3; i++) out[i] += s[i];
+        }
+        return out;
+    }
+
+    /** level 内の電力ネットワークの蓄電プールの合計: {蓄電量[J], 容量[J]} */
+    public double[] getElectricPoolStorage(Level level) {
+        double[] out = new double[2];
+        for (var n : getElectricNetworks(level)) {
+            double[] s = n.getPoolStorage();
+            out[0] += s[0];
+            out[1] += s[1];
+        }
+        return out;
+    }
+
+    /**
+     * 開閉（ISwitchableEdge）の反映。markElectricDirty と同じだが、flood 系でもデバウンスを待たずに次 tick で再構築する
+     */
+    public void markElectricSwitched(Level level, BlockPos pos) {
+        if (level == null || level.isClientSide) return;
+        LevelNetworkState st = state(level);
+        if (st == null) return;
+        mark(st, st.electric, pos);
+        if (!incrementalConnectivity) st.electric.debounce = 1;
+    }
+
+    public void markFluidSwitched(Level level, BlockPos pos) {
+        if (level == null || level.isClientSide) return;
+        LevelNetworkState st = state(level);
+        if (st == null) return;
+        mark(st, st.fluid, pos);
+        if (!incrementalConnectivity) st.fluid.debounce = 1;
+    }
+
+    // 座標を積むだけ。BE を引くのは次の serverTick の drainMarks（ここは setRemoved・チャンクのアンロード中にも来る）
+    private <N extends ISolvableNetwork> void mark(LevelNetworkState st, LevelNetworkState.KindState<N> ks, BlockPos origin) {
+        if (!incrementalConnectivity) {
+            ks.dirtyOrigins.add(origin);
+            ks.debounce = DEBOUNCE_TICKS;
+        }
+        if (origin != null) ks.queuedMarks.add(origin.asLong());
+    }
+
+    // tick 相の最初に、積まれた座標をエンジン・索引へ反映する
+    //   反映中に来た mark（BE の生成から onLoad が呼ばれる等）はキューに残り、次 tick で処理される
+    private <N extends ISolvableNetwork> void drainMarks(Level level, LevelNetworkState st, LevelNetworkState.KindState<N> ks) {
+        if (ks.queuedMarks.isEmpty()) return;
+        LongArrayList batch = ks.markBatch;
+        batch.addAll(ks.queuedMarks);
+        ks.queuedMarks.clear();
+        for (int i = 0; i < batch.size(); i++) {
+            BlockPos origin = BlockPos.of(batch.getLong(i));
+            long chunk = ChunkNodeIndex.chunkOf(batch.getLong(i));
+            if (ks.pending != null && ks.pending.hashes.containsKey(chunk)) {
+                // 復元した区域の最初の変更: 先にチャンクを検証しておく（未ロードなら後の巡回に任せる）
+                verifyChunk(level, chunk, ks);
+            }
+            refreshAround(level, origin, ks);
+            // 所属ネットワークが作り直されない変化（隣接ノードのロード、境界の変圧器の設置・撤去等）でも、
+            // origin と隣接のネットワークの解決済み参照は引き直させる
+            N n = networkAt(ks, origin);
+            if (n != null) ks.invalidate.accept(n);
+            for (Direction d : Direction.values()) {
+                N m = networkAt(ks, origin.relative(d));
+                if (m != null && m != n) ks.invalidate.accept(m);
+            }
+        }
+        batch.clear();
+        if (st.topology != null) st.topology.setDirty();
+    }
+
+    // origin と隣接 6 方向のノード有無・接続面をエンジンとチャンク索引へ反映する
+    // （隣接も見るので、取りこぼしたノードも隣の mark で拾われる）
+    private static void refreshAround(Level level, BlockPos origin, LevelNetworkState.KindState<?> ks) {
+        refreshNode(level, origin, ks);
+        for (Direction d : Direction.values()) refreshNode(level, origin.relative(d), ks);
+    }
+
+    private static void refreshNode(Level level, BlockPos pos, LevelNetworkState.KindState<?> ks) {
+        // 未ロードのチャンクはノード扱いしない（getBlockEntity が同期ロードを起こすため引かない。
+        // アンロードされたチャンクの setRemoved から積まれた座標もここで索引から外れる）
+        boolean loaded = level.isLoaded(pos);
+        long key = pos.asLong();
+        // ただし復元済みで未検証のチャンクは保存内容を信用して触らない（ロード後の検証で直す）
+        if (!loaded && ks.pending != null && ks.pending.hashes.containsKey(ChunkNodeIndex.chunkOf(key))) return;
+        var be = loaded ? level.getBlockEntity(pos) : null;
+        if (ks.kind.isNode(be)) {
+            ks.graph.add(pos, NetworkGraph.sideMask(be));
+            ks.nodeIndex.add(key);
+            if (be instanceof INetworkNode) ks.hookNodes.add(key);
+            else ks.hookNodes.remove(key);
+        } else {
+            ks.graph.remove(pos);
+            ks.nodeIndex.remove(key);
+            ks.hookNodes.remove(key);
+        }
+    }
+
+    // 作り直したネットワークに含まれるフック対象を pending へ（小さい方の集合を回す）
+    private static void collectHooks(LevelNetworkState st, LevelNetworkState.KindState<?> ks, LongSet netNodes) {
+        LongOpenHashSet hooks = ks.hookNodes;
+        if (hooks.isEmpty()) return;
+        if (hooks.size() <= netNodes.size()) {
+            for (LongIterator it = hooks.iterator(); it.hasNext(); ) {
+                long k = it.nextLong();
+                if (netNodes.contains(k)) st.pendingHooks.add(k);
+            }
+        } else {
+            for (LongIterator it = netNodes.iterator(); it.hasNext(); ) {
+                long k = it.nextLong();
+                if (hooks.contains(k)) st.pendingHooks.add(k);
+            }
+        }
+    }
+
+    // 再構築相の最後に 1 回だけ: 同じ tick に何度作り直されたノードでもフックは 1 回
+    private void firePendingHooks(Level level, LevelNetworkState st) {
+        if (st.pendingHooks.isEmpty()) return;
+        try {
+            rebuildHooksFired.add(NetworkGraph.fireRebuildHooks(level, st.pendingHooks));
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+        st.pendingHooks.clear();
+    }
+
+    // -------------------------
+    // トポロジ永続化
+    //   - ensureTopology: level ごとに 1 回、SavedData を取得し、増分モードなら保存内容をエンジンへ復元する
+    //   - verifyChunk:    チャンクの実際のノード（BE）からハッシュを取り、保存時と違えばそのチャンクだけ差分で直す
+    //   - captureTopology: 保存時に NetworkTopologyData から呼ばれ、エンジンの現在の中身を書き出す
+    // -------------------------
+    private void ensureTopology(Level level, LevelNetworkState st) {
+        if (st.topologyChecked) return;
+        st.topologyChecked = true;
+        if (!(level instanceof ServerLevel server)) return;
+        NetworkTopologyData data;
+        try {
+            data = NetworkTopologyData.get(server);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return;
+        }
+        st.topology = data;
+        NetworkTopologyData.Section f = data.takeSection(false);
+        NetworkTopologyData.Section e = data.takeSection(true);
+        if (!topologyCache || !incrementalConnectivity) return;
+        if (!f.isEmpty()) restoreSection(f, st.fluid);
+        if (!e.isEmpty()) restoreSection(e, st.electric);
+    }
+
+    private void restoreSection(NetworkTopologyData.Section sec, LevelNetworkState.KindState<?> ks) {
+        Int2ObjectOpenHashMap<LongOpenHashSet> byComp = new Int2ObjectOpenHashMap<>();
+        Long2ByteOpenHashMap masks = new Long2ByteOpenHashMap(sec.nodes.length);
+        for (int i = 0; i < sec.nodes.length; i++) {
+            long k = sec.nodes[i];
+            masks.put(k, sec.masks[i]);
+            byComp.computeIfAbsent(sec.comps[i], c -> new LongOpenHashSet()).add(k);
+            ks.nodeIndex.add(k);
+        }
+        for (LongOpenHashSet comp : byComp.values()) ks.graph.restore(comp, masks);
+        if (ks.pending == null) ks.pending = new LevelNetworkState.PendingChunks();
+        for (int i = 0; i < sec.chunks.length; i++) {
+            ks.pending.hashes.put(sec.chunks[i], sec.hashes[i]);
+            ks.pending.sweep.enqueue(sec.chunks[i]);
+        }
+        restoredNodes.add(sec.nodes.length);
+    }
+
+    // 未検証チャンクを少しずつ巡回する（ロード済みのものだけ検証、未ロードは後ろへ）
+    private void sweepPending(Level level, LevelNetworkState.KindState<?> ks) {
+        var pending = ks.pending;
+        if (pending == null) return;
+        if (pending.hashes.isEmpty()) {
+            ks.pending = null;
+            return;
+        }
+        int n = Math.min(VERIFY_CHUNKS_PER_TICK, pending.sweep.size());
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && !TickBudget.hasTimeLeft()) break;
+            long chunk = pending.sweep.dequeueLong();
+            if (!pending.hashes.containsKey(chunk)) continue; // mark 時に検証済み
+            if (!verifyChunk(level, chunk, ks)) pending.sweep.enqueue(chunk);
+        }
+    }
+
+    /** @return 検証できたか（チャンクが未ロードなら false で、保存内容を信用したまま） */
+    private boolean verifyChunk(Level level, long chunk, LevelNetworkState.KindState<?> ks) {
+        LevelChunk lc = level.getChunkSource().getChunkNow(ChunkPos.getX(chunk), ChunkPos.getZ(chunk));
+        if (lc == null) return false;
+        long saved = ks.pending.hashes.remove(chunk);
+
+        Long2ByteOpenHashMap live = new Long2ByteOpenHashMap();
+        Long2ObjectOpenHashMap<BlockEntity> liveBe = new Long2ObjectOpenHashMap<>();
+        long hash = 0L;
+        for (BlockEntity be : lc.getBlockEntities().values()) {
+            if (!ks.kind.isNode(be)) continue;
+            long k = be.getBlockPos().asLong();
+            byte m = NetworkGraph.sideMask(be);
+            live.put(k, m);
+            liveBe.put(k, be);
+            hash += NetworkTopologyData.nodeHash(k, m);
+        }
+        if (hash == saved && live.size() == ks.nodeIndex.inChunk(chunk).size()) {
+            verifiedChunks.increment();
+            return true;
+        }
+
+        // 食い違い: このチャンクのノードだけ差分でエンジンへ反映（外れた所は局所探索で分割、増えた所は union）
+        mismatchedChunks.increment();
+        LongArrayList stale = new LongArrayList();
+        for (LongIterator it = ks.nodeIndex.inChunk(chunk).iterator(); it.hasNext(); ) {
+            long k = it.nextLong();
+            if (!live.containsKey(k)) stale.add(k);
+        }
+        for (int i = 0; i < stale.size(); i++) {
+            long k = stale.getLong(i);
+            ks.graph.remove(BlockPos.of(k));
+            ks.nodeIndex.remove(k);
+            ks.hookNodes.remove(k);
+        }
+        for (var entry : live.long2ByteEntrySet()) {
+            long k = entry.getLongKey();
+            ks.graph.add(BlockPos.of(k), entry.getByteValue());
+            ks.nodeIndex.add(k);
+            if (liveBe.get(k) instanceof INetworkNode) ks.hookNodes.add(k);
+        }
+        return true;
+    }
+
+    /** 保存用にエンジンの現在の中身を書き出す（NetworkTopologyData.save から、その level のスレッドで呼ばれる） */
+    NetworkTopologyData.Section captureTopology(Level level, boolean electric) {
+        LevelNetworkState st = states.get(level);
+        return st == null ? new NetworkTopologyData.Section() : captureSection(st.kind(electric));
+    }
+
+    private static NetworkTopologyData.Section captureSection(LevelNetworkState.KindState<?> ks) {
+        NetworkTopologyData.Section sec = new NetworkTopologyData.Section();
+        ConnectivityEngine graph = ks.graph;
+        ChunkNodeIndex index = ks.nodeIndex;
+        int chunkCount = index.chunkCount();
+        int total = index.size();
+        sec.chunks = new long[chunkCount];
+        sec.hashes = new long[chunkCount];
+        sec.counts = new int[chunkCount];
+        sec.nodes = new long[total];
+        sec.masks = new byte[total];
+        sec.comps = new int[total];
+        int c = 0, n = 0;
+        for (LongIterator ci = index.chunks().iterator(); ci.hasNext(); ) {
+            long chunk = ci.nextLong();
+            long hash = 0L;
+            int count = 0;
+            for (LongIterator it = index.inChunk(chunk).iterator(); it.hasNext(); ) {
+                long k = it.nextLong();
+                byte m = graph.maskAt(k);
+                sec.nodes[n] = k;
+                sec.masks[n] = m;
+                sec.comps[n] = graph.idAt(k);
+                hash += NetworkTopologyData.nodeHash(k, m);
+                n++;
+                count++;
+            }
+            sec.chunks[c] = chunk;
+            sec.hashes[c] = hash;
+            sec.counts[c] = count;
+            c++;
+        }
+        return sec;
+    }
+
+    /** トポロジ永続化の統計: {復元ノード数, 一致したチャンク数, 作り直したチャンク数} */
+    public long[] getTopologyCacheStats() {
+        return new long[]{restoredNodes.sum(), verifiedChunks.sum(), mismatchedChunks.sum()};
+    }
+
+    public void setTopologyCache(boolean enabled) {
+        topologyCache = enabled;
+    }
+
+    // -------------------------
+    // level のライフサイクル
+    //   アンロードされた level の状態は丸ごと外す（Level への強参照を残さない）
+    //   トポロジはこの時点の中身を SavedData に写しておき、アンロード後の保存でも空にならないようにする
+    // -------------------------
+    public void onLevelUnload(Level level) {
+        if (level == null || level.isClientSide) return;
+        unloaded.add(level);
+        LevelNetworkState st = states.remove(level);
+        if (st == null) return;
+        unloadedLevels.increment();
+        if (st.topology != null) {
+            try {
+                st.topology.freeze(captureSection(st.fluid), captureSection(st.electric));
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /** 状態を保持している level 数（アンロード漏れの確認用） */
+    public int getTrackedLevelCount() {
+        return states.size();
+    }
+
+    public long getUnloadedLevelCount() {
+        return unloadedLevels.sum();
+    }
+
+    /** level のネットワーク状態のおおよそのヒープ使用量（バイト）。状態が無ければ 0 */
+    public long getHeapEstimateBytes(Level level) {
+        LevelNetworkState st = states.get(level);
+        return st == null ? 0L : st.estimateHeapBytes();
     }
 
     // -------------------------
@@ -70,119 +467,386 @@ public final class SmartNetworkManager {
     // -------------------------
     public void serverTick(Level level) {
         if (level == null || level.isClientSide) return;
-        // Fluid side
-        if (fluidDebounce.containsKey(level)) {
-            int left = fluidDebounce.get(level) - 1;
-            fluidDebounce.put(level, left);
-            if (left <= 0) {
-                // process up to MAX_REBUILDS_PER_TICK origins this tick
-                Deque<BlockPos> q = fluidDirtyOrigins.getOrDefault(level, new ArrayDeque<>());
-                int cnt = 0;
-                while (!q.isEmpty() && cnt < MAX_REBUILDS_PER_TICK) {
-                    BlockPos origin = q.poll();
-                    rebuildFluidForOrigin((ServerLevel) level, origin);
-                    cnt++;
-                }
-                // if leftover origins remain, keep a debounce so they will process next tick
-                if (!q.isEmpty()) {
-                    fluidDebounce.put(level, DEBOUNCE_TICKS);
-                    fluidDirtyOrigins.put(level, q);
-                } else {
-                    fluidDebounce.remove(level);
-                    fluidDirtyOrigins.remove(level);
+        LevelNetworkState st = state(level);
+        if (st == null) return;
+        long now = level.getGameTime();
+        if (st.lastTickedGameTime == now) {
+            duplicateTickCalls.increment();
+            return;
+        }
+        st.lastTickedGameTime = now;
+        st.networkTickRuns++;
+        ensureTopology(level, st);
+        // 前 tick 以降に積まれた mark をエンジン・索引へ（BE を引くのはここだけ）
+        drainMarks(level, st, st.fluid);
+        drainMarks(level, st, st.electric);
+
+        if (incrementalConnectivity) {
+            // 復元した区域のうちロードされたチャンクを検証
+            sweepPending(level, st.fluid);
+            sweepPending(level, st.electric);
+            // 増分: mark 時にエンジンが成分を更新済み。変わった成分のネットワークだけ作り直す
+            applyGraph(st, st.fluid);
+            applyGraph(st, st.electric);
+        } else {
+            // フォールバック: デバウンス後、時間予算の範囲で起点グループを同期 flood で再構築
+            drainOrigins((ServerLevel) level, st, st.fluid);
+            drainOrigins((ServerLevel) level, st, st.electric);
+        }
+        firePendingHooks(level, st);
+
+        // そして既存のネットワークを tick（クリティカル: 予算に関係なく毎 tick）
+        List<com.infinitymax.industry.fluid.FluidNetwork> fns = st.fluid.networks.list();
+        List<com.infinitymax.industry.energy.ElectricNetwork> ens = st.electric.networks.list();
+        int total = fns.size() + ens.size();
+        if (total == 0) return;
+
+        if (!parallelNetworkTick || total < PARALLEL_MIN_NETWORKS) {
+            long before = measureNetworkAllocation ? threadAllocatedBytes() : -1L;
+            // 添字で回す（イテレータも作らない）
+            for (int i = 0, n = fns.size(); i < n; i++) fns.get(i).tick(level);
+            for (int i = 0, n = ens.size(); i < n; i++) ens.get(i).tick(level);
+            if (before >= 0L) {
+                long after = threadAllocatedBytes();
+                if (after >= 0L) {
+                    networkTickSamples.increment();
+                    networkTickAllocatedBytes.add(after - before);
                 }
             }
+            return;
+        }
+        tickParallel(level, fns, ens);
+    }
+
+    // -------------------------
+    // 並列 tick
+    //   1) prepare: メインスレッドで各ネットワークのスナップショットを作る（BE 読み取り）
+    //   2) solve:   ForkJoin プールで互いに素なネットワークを並列計算（スナップショットのみ参照）
+    //   3) apply:   メインスレッドでリスト順に反映（順序固定なので結果は決定的）
+    // -------------------------
+    private void tickParallel(Level level,
+                              List<com.infinitymax.industry.fluid.FluidNetwork> fns,
+                              List<com.infinitymax.industry.energy.ElectricNetwork> ens) {
+        List<ISolvableNetwork> all = new ArrayList<>(fns.size() + ens.size());
+        all.addAll(fns);
+        all.addAll(ens);
+
+        for (ISolvableNetwork n : all) n.prepare(level);
+        try {
+            networkPool().submit(() -> all.parallelStream().forEach(ISolvableNetwork::solve)).join();
+        } catch (RuntimeException ex) {
+            // 並列側で失敗したら逐次で解き直す（solve は冪等）
+            ex.printStackTrace();
+            for (ISolvableNetwork n : all) n.solve();
         }
+        for (ISolvableNetwork n : all) n.apply(level);
+    }
 
-        // Electric side (同様)
-        if (electricDebounce.containsKey(level)) {
-            int left = electricDebounce.get(level) - 1;
-            electricDebounce.put(level, left);
-            if (left <= 0) {
-                Deque<BlockPos> q = electricDirtyOrigins.getOrDefault(level, new ArrayDeque<>());
-                int cnt = 0;
-                while (!q.isEmpty() && cnt < MAX_REBUILDS_PER_TICK) {
-                    BlockPos origin = q.poll();
-                    rebuildElectricForOrigin((ServerLevel) level, origin);
-                    cnt++;
+    private static ForkJoinPool networkPool() {
+        ForkJoinPool p = networkPool;
+        if (p == null) {
+            synchronized (SmartNetworkManager.class) {
+                p = networkPool;
+                if (p == null) {
+                    int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                    p = new ForkJoinPool(threads, pool -> {
+                        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        t.setName("InfinityMax-Network-" + t.getPoolIndex());
+                        t.setDaemon(true);
+                        return t;
+                    }, null, false);
+                    networkPool = p;
                 }
-                if (!q.isEmpty()) {
-                    electricDebounce.put(level, DEBOUNCE_TICKS);
-                    electricDirtyOrigins.put(level, q);
+            }
+        }
+        return p;
+    }
+
+    // 現在のスレッドの累積確保バイト数（HotSpot 以外など測れなければ -1）
+    private static long threadAllocatedBytes() {
+        try {
+            if (java.lang.management.ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx
+                    && mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled()) {
+                return mx.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        } catch (Throwable ignored) {
+        }
+        return -1L;
+    }
+
+    /** ネットワーク tick の確保量の計測の切り替え（-Dinfinitymax.measureNetworkAllocation=true でも有効化できる） */
+    public void setMeasureNetworkAllocation(boolean enabled) {
+        measureNetworkAllocation = enabled;
+    }
+
+    /** 逐次ネットワーク tick の確保量: {計測 tick 数, 確保バイト合計}。定常（再構築なし）なら合計は増えないはず */
+    public long[] getNetworkTickAllocationStats() {
+        return new long[]{networkTickSamples.sum(), networkTickAllocatedBytes.sum()};
+    }
+
+    /** 並列モードの切り替え（-Dinfinitymax.parallelNetworks=true でも有効化できる） */
+    public void setParallelNetworkTick(boolean enabled) {
+        parallelNetworkTick = enabled;
+    }
+
+    public boolean isParallelNetworkTick() {
+        return parallelNetworkTick;
+    }
+
+    // -------------------------
+    // 増分連結モード
+    //   エンジンが変わったと報告した成分 ID のネットワークだけを差し替える
+    // -------------------------
+    private static <N extends ISolvableNetwork> void applyGraph(LevelNetworkState st, LevelNetworkState.KindState<N> ks) {
+        if (!ks.graph.hasChanges()) return;
+        for (int id : ks.graph.drainChanged()) {
+            LongSet nodes = ks.graph.nodesOf(id);
+            if (nodes == null) ks.networks.removeComponent(id);
+            else {
+                ks.networks.putComponent(id, ks.factory.apply(nodes));
+                collectHooks(st, ks, nodes);
+            }
+        }
+    }
+
+    /**
+     * 増分連結モードの切替。
+     * - on にする: 全成分を変更扱いにして、次 tick でエンジンからネットワークを作り直す
+     * - off にする: エンジンの全ノードを起点として flood 系の再構築に引き継ぐ
+     */
+    public void setIncrementalConnectivity(boolean enabled) {
+        if (incrementalConnectivity == enabled) return;
+        incrementalConnectivity = enabled;
+        for (LevelNetworkState st : states.values()) {
+            for (LevelNetworkState.KindState<?> ks : List.of(st.fluid, st.electric)) {
+                // ID の意味（成分 ID / 索引の通し番号）が変わるので保持中のネットワークは捨てる
+                ks.networks.clear();
+                if (enabled) {
+                    ks.clearDirty();
+                    ks.graph.markAllChanged();
                 } else {
-                    electricDebounce.remove(level);
-                    electricDirtyOrigins.remove(level);
+                    ks.dirtyOrigins.addAll(positionsOf(ks.graph.copyNodes()));
+                    ks.debounce = 1;
                 }
             }
         }
+    }
 
-        // そして既存のネットワークを tick（軽量）
-        List<com.infinitymax.industry.fluid.FluidNetwork> fns = fluidNetworks.get(level);
-        if (fns != null) for (var fn : fns) fn.tick(level);
+    public boolean isIncrementalConnectivity() { return incrementalConnectivity; }
 
-        List<com.infinitymax.industry.energy.ElectricNetwork> ens = electricNetworks.get(level);
-        if (ens != null) for (var en : ens) en.tick(level);
+    /** 増分エンジンの統計: {merge 回数, split 回数, remove 時の局所探索ノード数累計} */
+    public long[] getConnectivityStats(Level level) {
+        long[] out = new long[3];
+        LevelNetworkState st = states.get(level);
+        if (st == null) return out;
+        for (ConnectivityEngine g : List.of(st.fluid.graph, st.electric.graph)) {
+            out[0] += g.getMerges();
+            out[1] += g.getSplits();
+            out[2] += g.getSearchVisited();
+        }
+        return out;
     }
 
+    /** onGraphRebuild を呼んだ回数の累計（1 ノード 1 tick につき最大 1 回） */
+    public long getRebuildHooksFired() { return rebuildHooksFired.sum(); }
+
     // -------------------------
-    // 再構築ロジック
-    //   - origin が指定されれば局所 discover (discoverFromOrigins)
-    //   - origin が null なら全再構築 discoverAll
+    // 同期再構築のキュー処理
+    //   1) 先頭の起点と、同じチャンク / 同じ既存ネットワークに居る起点を 1 グループにまとめる
+    //   2) グループの起点（と隣接）から 1 回だけ discover して差し替える
+    //   3) 見つかった成分で覆われた残りの起点（自身と隣接ノードがすべて成分内）はキューから外す
+    //   4) 実測コストの EWMA を更新し、残り予算に次の 1 回が収まらなければ次 tick へ（最低 1 回は進める）
     // -------------------------
-    private void rebuildFluidForOrigin(ServerLevel level, BlockPos origin) {
-        // origin を中心に discover を行う（局所再構築）
-        Set<BlockPos> origins = new HashSet<>();
-        if (origin != null) origins.add(origin);
-        List<com.infinitymax.industry.fluid.FluidNetwork> found = com.infinitymax.industry.fluid.FluidNetwork.discoverFromOrigins(level, origins);
-        // Merge: replace or append networks into stored list. simplest: recompute full list by discoverAll fallback
-        if (found.isEmpty()) {
-            // fallback 全探索（安全）
-            List<com.infinitymax.industry.fluid.FluidNetwork> all = com.infinitymax.industry.fluid.FluidNetwork.discoverAll(level);
-            fluidNetworks.put(level, all);
-        } else {
-            // integrate: replace networks that overlap with found origins
-            List<com.infinitymax.industry.fluid.FluidNetwork> existing = fluidNetworks.getOrDefault(level, new ArrayList<>());
-            // remove any existing networks that intersect found nodes
-            Set<BlockPos> touched = new HashSet<>();
-            for (var fn : found) touched.addAll(fn.getNodePositions());
-            List<com.infinitymax.industry.fluid.FluidNetwork> remaining = new ArrayList<>();
-            for (var ex : existing) {
-                if (Collections.disjoint(ex.getNodePositions(), touched)) remaining.add(ex);
+    private <N extends ISolvableNetwork> void drainOrigins(ServerLevel level, LevelNetworkState st, LevelNetworkState.KindState<N> ks) {
+        if (ks.debounce == 0) return;
+        if (ks.debounce > 1) {
+            ks.debounce--;
+            return;
+        }
+        LinkedHashSet<BlockPos> q = ks.dirtyOrigins;
+        int done = 0;
+        while (!q.isEmpty()) {
+            if (done > 0 && TickBudget.remainingNanos() < ks.rebuildCostNanos) break;
+            long t0 = System.nanoTime();
+
+            if (q.contains(null)) {
+                // 全再構築で全部覆われる
+                q.clear();
+                rebuildForOrigins(level, st, ks, null);
+            } else {
+                Set<BlockPos> group = takeGroup(q, ks);
+                Set<BlockPos> origins = new HashSet<>(group.size() * 7);
+                for (BlockPos o : group) origins.addAll(withNeighbors(o));
+                LongOpenHashSet covered = rebuildForOrigins(level, st, ks, origins);
+                coalescedOrigins.add(group.size() - 1);
+                dropCovered(q, covered, ks.graph);
             }
-            // combine
-            remaining.addAll(found);
-            fluidNetworks.put(level, remaining);
+
+            long spent = System.nanoTime() - t0;
+            ks.rebuildCostNanos += REBUILD_COST_ALPHA * (spent - ks.rebuildCostNanos);
+            done++;
         }
+        // 残りは次 tick に続ける（デバウンスはやり直さない）
+        ks.debounce = q.isEmpty() ? 0 : 1;
     }
 
-    private void rebuildElectricForOrigin(ServerLevel level, BlockPos origin) {
-        Set<BlockPos> origins = new HashSet<>();
-        if (origin != null) origins.add(origin);
-        List<com.infinitymax.industry.energy.ElectricNetwork> found = com.infinitymax.industry.energy.ElectricNetwork.discoverFromOrigins(level, origins);
-        if (found.isEmpty()) {
-            List<com.infinitymax.industry.energy.ElectricNetwork> all = com.infinitymax.industry.energy.ElectricNetwork.discoverAll(level);
-            electricNetworks.put(level, all);
-        } else {
-            List<com.infinitymax.industry.energy.ElectricNetwork> existing = electricNetworks.getOrDefault(level, new ArrayList<>());
-            Set<BlockPos> touched = new HashSet<>();
-            for (var en : found) touched.addAll(en.getNodePositions());
-            List<com.infinitymax.industry.energy.ElectricNetwork> remaining = new ArrayList<>();
-            for (var ex : existing) {
-                if (Collections.disjoint(ex.getNodePositions(), touched)) remaining.add(ex);
+    // 先頭の起点と、同じチャンク・同じ既存ネットワークに属する起点をキューから取り出す
+    private static Set<BlockPos> takeGroup(LinkedHashSet<BlockPos> q, LevelNetworkState.KindState<?> ks) {
+        Iterator<BlockPos> it = q.iterator();
+        BlockPos first = it.next();
+        it.remove();
+        Set<BlockPos> group = new LinkedHashSet<>();
+        group.add(first);
+        long chunk = ChunkNodeIndex.chunkOf(first.asLong());
+        int net = ks.networks.idAt(first);
+        while (it.hasNext()) {
+            BlockPos p = it.next();
+            if (ChunkNodeIndex.chunkOf(p.asLong()) == chunk || (net != 0 && ks.networks.idAt(p) == net)) {
+                group.add(p);
+                it.remove();
             }
-            remaining.addAll(found);
-            electricNetworks.put(level, remaining);
         }
+        return group;
     }
 
+    // 自身と隣接のノードがすべて covered に入っている起点は、もう flood 済みなので外す
+    private void dropCovered(LinkedHashSet<BlockPos> q, LongOpenHashSet covered, ConnectivityEngine graph) {
+        if (covered.isEmpty()) return;
+        for (Iterator<BlockPos> it = q.iterator(); it.hasNext(); ) {
+            BlockPos p = it.next();
+            if (isCovered(p.asLong(), covered, graph)) {
+                it.remove();
+                coalescedOrigins.increment();
+            }
+        }
+    }
+
+    private static boolean isCovered(long key, LongOpenHashSet covered, ConnectivityEngine graph) {
+        if (!covered.contains(key) && graph.contains(key)) return false;
+        for (Direction d : Direction.values()) {
+            long n = BlockPos.offset(key, d);
+            if (!covered.contains(n) && graph.contains(n)) return false;
+        }
+        return true;
+    }
+
+    // -------------------------
+    // 再構築ロジック（同期モード）
+    //   - origins が指定されれば局所 discover (discoverFromOrigins)
+    //   - origins が null なら全再構築 discoverAll
+    //   戻り値は見つかった成分の全ノード（全再構築なら空）
     // -------------------------
-    // 外からネットワークリストを参照したい場合の getter
+    private static <N extends ISolvableNetwork> LongOpenHashSet rebuildForOrigins(ServerLevel level, LevelNetworkState st,
+                                                                                LevelNetworkState.KindState<N> ks, Set<BlockPos> origins) {
+        if (origins == null) {
+            // 起点なし: 全再構築（安全側）
+            ks.networks.clear();
+            List<N> all = ks.discoverAll.apply(level);
+            for (N n : all) collectHooks(st, ks, ks.nodesOf.apply(n));
+            ks.networks.replaceTouching(LongArrayList.of(), all);
+            return new LongOpenHashSet();
+        }
+        // 起点とその隣接から局所 discover（起点が撤去済みでも、分断された側を隣から拾える）
+        List<N> found = ks.discoverFrom.apply(level, origins);
+        // integrate: 起点と見つかったノードが属する既存ネットワークだけを索引で引いて差し替える
+        LongArrayList touched = keysOf(origins);
+        LongOpenHashSet covered = new LongOpenHashSet();
+        for (N n : found) {
+            covered.addAll(ks.nodesOf.apply(n));
+            collectHooks(st, ks, ks.nodesOf.apply(n));
+        }
+        touched.addAll(covered);
+        ks.networks.replaceTouching(touched, found);
+        return covered;
+    }
+
+    /** 同期再構築 1 回あたりの実測コスト EWMA（ナノ秒）: {fluid, electric} */
+    public double[] getRebuildCostEstimateNanos(Level level) {
+        LevelNetworkState st = states.get(level);
+        if (st == null) {
+            return new double[]{LevelNetworkState.INITIAL_REBUILD_COST_NANOS, LevelNetworkState.INITIAL_REBUILD_COST_NANOS};
+        }
+        return new double[]{st.fluid.rebuildCostNanos, st.electric.rebuildCostNanos};
+    }
+
+    /** まとめ / 被覆で個別 flood を省いた起点数の累計 */
+    public long getCoalescedOrigins() { return coalescedOrigins.sum(); }
+
+    private static LongArrayList keysOf(Collection<BlockPos> positions) {
+        LongArrayList out = new LongArrayList(positions.size());
+        for (BlockPos p : positions) out.add(p.asLong());
+        return out;
+    }
+
+    private static List<BlockPos> positionsOf(LongSet keys) {
+        List<BlockPos> out = new ArrayList<>(keys.size());
+        for (LongIterator it = keys.iterator(); it.hasNext(); ) out.add(BlockPos.of(it.nextLong()));
+        return out;
+    }
+
+    private static Set<BlockPos> withNeighbors(BlockPos origin) {
+        Set<BlockPos> out = new HashSet<>(8);
+        out.add(origin);
+        for (Direction d : Direction.values()) out.add(origin.relative(d));
+        return out;
+    }
+
+    // -------------------------
+    // 外からネットワークリストを参照したい場合の getter（他ディメンションのスレッドからでも可。読み取り専用の完成済みリスト）
     // -------------------------
     public List<com.infinitymax.industry.fluid.FluidNetwork> getFluidNetworks(Level level) {
-        return fluidNetworks.getOrDefault(level, Collections.emptyList());
+        LevelNetworkState st = states.get(level);
+        return st == null ? Collections.emptyList() : st.fluid.networks.list();
     }
 
     public List<com.infinitymax.industry.energy.ElectricNetwork> getElectricNetworks(Level level) {
-        return electricNetworks.getOrDefault(level, Collections.emptyList());
+        LevelNetworkState st = states.get(level);
+        return st == null ? Collections.emptyList() : st.electric.networks.list();
+    }
+
+    // -------------------------
+    // ロード済みノード座標（BlockPos.asLong() の複製）。discoverAll が回す
+    // -------------------------
+    public LongSet getFluidNodeKeys(Level level) {
+        LevelNetworkState st = states.get(level);
+        return st == null ? LongSets.EMPTY_SET : st.fluid.nodeIndex.copyAll();
+    }
+
+    public LongSet getElectricNodeKeys(Level level) {
+        LevelNetworkState st = states.get(level);
+        return st == null ? LongSets.EMPTY_SET : st.electric.nodeIndex.copyAll();
+    }
+
+    // -------------------------
+    // 座標 -> 所属ネットワーク（O(1)。プローブや機械から「このパイプはどのネットワークか」を引く用）
+    //   増分モードはエンジンの成分 ID、flood 系は索引の ID で引く。属していなければ null
+    // -------------------------
+    public com.infinitymax.industry.fluid.FluidNetwork getFluidNetworkAt(Level level, BlockPos pos) {
+        LevelNetworkState st = states.get(level);
+        return st == null || pos == null ? null : networkAt(st.fluid, pos);
+    }
+
+    public com.infinitymax.industry.energy.ElectricNetwork getElectricNetworkAt(Level level, BlockPos pos) {
+        LevelNetworkState st = states.get(level);
+        return st == null || pos == null ? null : networkAt(st.electric, pos);
+    }
+
+    private <N extends ISolvableNetwork> N networkAt(LevelNetworkState.KindState<N> ks, BlockPos pos) {
+        if (incrementalConnectivity) return ks.networks.get(ks.graph.idAt(pos));
+        return ks.networks.get(ks.networks.idAt(pos));
+    }
+
+    // -------------------------
+    // 計測用カウンタ（1 level 1 tick 1 回の確認用）
+    //   - getNetworkTickRuns(level) は経過 tick 数と一致するはず
+    //   - getDuplicateTickCalls() が増えていれば、どこかが二重に serverTick を呼んでいる
+    // -------------------------
+    public long getNetworkTickRuns(Level level) {
+        LevelNetworkState st = states.get(level);
+        return st == null ? 0L : st.networkTickRuns;
+    }
+
+    public long getDuplicateTickCalls() {
+        return duplicateTickCalls.sum();
     }
 }
@@ -208,7 +208,7 @@ public final class RegistryManager {
         BLOCKS.forEach((id, b) -> { if (b instanceof MachineBlock) machineBlocks.add(b); });
 
         BlockEntityType<MachineBlockEntity> type = BlockEntityType.Builder
-                .of((pos, state) -> new MachineBlockEntity(pos, state,
+                .of((pos, state) -> MachineBlockEntity.create(pos, state,
                         (state.getBlock() instanceof MachineBlock mb) ? mb.kind : CRUSHER),
                     machineBlocks.toArray(new Block[0]))
                 .build(null);
@@ -0,0 +1,25 @@
+package com.infinitymax.industry.tick;
+
+/**
+ * TickDispatcher から呼ばれるサーバ tick の契約。
+ * - リフレクションを使わずインタフェース呼び出しで dispatch する
+ * - 実装クラスは BlockEntity であること（level / isRemoved() を参照するため）
+ */
+public interface IServerTickable {
+
+    /** サーバ側で 1 tick 分の処理を行う */
+    void serverTick();
+
+    /**
+     * true なら TickBudget を超えた分を次 tick 以降に後回ししてよい（非クリティカル）。
+     * 型単位で判定されるので、実装クラスごとに定数を返すこと。
+     */
+    default boolean isDeferrable() { return false; }
+
+    /**
+     * true ならプレイヤーから遠い時に 1/4・1/20 の頻度へ間引いてよい。
+     * その場合 serverTick() は毎 tick 呼ばれないので、実装側で経過 tick 数を数えてまとめて進めること。
+     * 型単位で判定される。
+     */
+    default boolean supportsCatchUp() { return false; }
+}
@@ -0,0 +1,38 @@
+package com.infinitymax.industry.tick;
+
+/**
+ * 1 ゲーム tick あたりの処理時間予算（ナノ秒）
+ *
+ * - 全 level で共有する締め切り（deadline）を持つ。ゲーム tick が変わった最初の tickLevel で張り直す
+ * - 後回し可能な処理（非クリティカルな機械 tick・ネットワーク再構築）は hasTimeLeft() を見て打ち切る
+ * - クリティカルな処理（ネットワークの電力/流体配分）は予算に関係なく毎 tick 回す
+ * - 予算は -Dinfinitymax.tickBudgetNanos=... か setBudgetNanos() で変更可
+ */
+public final class TickBudget {
+    private TickBudget() {}
+
+    // 既定 10ms（MSPT 50ms の 1/5 をこの MOD の後回し可能な処理に割り当てる）
+    private static volatile long budgetNanos = Long.getLong("infinitymax.tickBudgetNanos", 10_000_000L);
+
+    private static volatile long deadlineNanos = Long.MAX_VALUE;
+    private static volatile int currentServerTick = Integer.MIN_VALUE;
+
+    public static long getBudgetNanos() { return budgetNanos; }
+
+    public static void setBudgetNanos(long nanos) { budgetNanos = Math.max(0L, nanos); }
+
+    /** サーバ tick 番号が変わっていれば締め切りを張り直す（同一 tick の 2 回目以降は何もしない） */
+    public static void beginTick(int serverTick) {
+        if (serverTick == currentServerTick) return;
+        currentServerTick = serverTick;
+        deadlineNanos = System.nanoTime() + budgetNanos;
+    }
+
+    public static boolean hasTimeLeft() {
+        return System.nanoTime() < deadlineNanos;
+    }
+
+    public static long remainingNanos() {
+        return Math.max(0L, deadlineNanos - System.nanoTime());
+    }
+}
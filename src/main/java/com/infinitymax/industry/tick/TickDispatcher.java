@@ -1,54 +1,358 @@
 package com.infinitymax.industry.tick;
 
+import com.infinitymax.industry.network.SmartNetworkManager;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * TickDispatcher
  * - BlockEntity が自身を register/unregister しておくと、ここで一括 tick を回せる。
- * - NeoForge/Fabric の server tick ハンドラから TickDispatcher.tickAll(server) を呼ぶ。
+ * - NeoForge/Fabric の level tick ハンドラから TickDispatcher.tickLevel(level) を呼ぶ。
+ * - 本 MOD の BE はここが唯一の tick 経路（Block#getTicker は返さない）。
+ * - ネットワーク相（再構築 + FluidNetwork/ElectricNetwork.tick）もここが持ち、レベルごと 1 tick 1 回だけ回す。
+ *
+ * 構造:
+ * - IServerTickable をインタフェース呼び出しで dispatch（リフレクション無し）
+ * - level -> 具象クラス -> TickList に振り分け、同じ型を連続で回すことで呼び出し先を単相に近づける
+ * - register は BE の onLoad（level 設定済み）から呼び、PENDING に積んで tick 時に振り分ける
+ *
+ * 予算制御:
+ * - isDeferrable() == false の型（クリティカル）は毎 tick 全件回す
+ * - isDeferrable() == true の型は TickBudget の残り時間内でラウンドロビンに回し、
+ *   打ち切った位置（カーソル）から次 tick に再開する
+ * - 1 周にかかった tick 数を「飢餓 tick 数」として記録する（getMaxStarvationTicks）
+ *
+ * 距離 tier（supportsCatchUp() == true の型のみ）:
+ * - 最寄りプレイヤーまでの距離で FULL(毎 tick) / QUARTER(4 tick 毎) / SLOW(20 tick 毎) を決める
+ * - tier は TIER_RECHECK_TICKS ごとに見直す。前回実行から interval tick 経ったものだけ回す
+ *   （初回は位置ハッシュで位相をずらし、同じ tick に偏らないようにする）
+ * - 間引かれた BE は次に呼ばれた時に経過 tick 数分をまとめて進める（MachineBlockEntity.advance）
+ *
+ * スリープ:
+ * - sleep(be) で稼働集合（TickList）から外し、wake(be) で戻す。登録自体は維持される
+ * - 眠っている BE は tick コストがゼロ。起こすのはイベント側（スロット変化・受電など）の責任
  */
 public final class TickDispatcher {
     private TickDispatcher() {}
 
-    private static final Set<BlockEntity> TICKABLES = ConcurrentHashMap.newKeySet();
+    // 予算チェック（System.nanoTime）を何件ごとに行うか
+    private static final int BUDGET_CHECK_INTERVAL = 32;
+
+    // 距離 tier（ブロック距離の 2 乗）と間引き間隔
+    private static final double FULL_RATE_DIST_SQ = 48.0 * 48.0;
+    private static final double QUARTER_RATE_DIST_SQ = 128.0 * 128.0;
+    private static final int INTERVAL_FULL = 1;
+    private static final int INTERVAL_QUARTER = 4;
+    private static final int INTERVAL_SLOW = 20;
+    // tier の見直し間隔[tick]
+    private static final int TIER_RECHECK_TICKS = 100;
+
+    // register された BE を次の tick まで積んでおく（tick 相の外から呼ばれてもよいように）
+    private static final Queue<BlockEntity> PENDING = new ConcurrentLinkedQueue<>();
+
+    // level -> その level の tick 対象
+    private static final Map<Level, LevelTicks> BY_LEVEL = new ConcurrentHashMap<>();
 
     public static void register(BlockEntity be) {
-        if (be == null) return;
-        TICKABLES.add(be);
+        if (!(be instanceof IServerTickable)) return;
+        PENDING.add(be);
     }
 
     public static void unregister(BlockEntity be) {
-        if (be == null) return;
-        TICKABLES.remove(be);
+        if (!(be instanceof IServerTickable t)) return;
+        Level level = be.getLevel();
+        if (level == null) {
+            PENDING.remove(be);
+            return;
+        }
+        LevelTicks lt = BY_LEVEL.get(level);
+        if (lt == null) return;
+        lt.sleeping.remove(t);
+        TickList list = lt.byType.get(be.getClass());
+        if (list != null) list.remove(t);
+    }
+
+    /** 稼働集合から外す（unregister と違い wake で戻せる）。tick 中に呼んでもよい */
+    public static void sleep(BlockEntity be) {
+        if (!(be instanceof IServerTickable t)) return;
+        Level level = be.getLevel();
+        if (level == null) return;
+        LevelTicks lt = BY_LEVEL.get(level);
+        if (lt == null) return;
+        TickList list = lt.byType.get(be.getClass());
+        if (list == null) return;
+        list.remove(t);
+        lt.sleeping.add(t);
+    }
+
+    /** 眠っていれば稼働集合に戻す。眠っていなければ何もしない */
+    public static void wake(BlockEntity be) {
+        if (!(be instanceof IServerTickable t)) return;
+        Level level = be.getLevel();
+        if (level == null) return;
+        LevelTicks lt = BY_LEVEL.get(level);
+        if (lt == null || !lt.sleeping.remove(t)) return;
+        if (be.isRemoved()) return;
+        lt.add(t);
+    }
+
+    /** level のアンロード時に呼ぶ。その level の tick 対象を丸ごと外す（Level への強参照を残さない） */
+    public static void onLevelUnload(Level level) {
+        if (level == null) return;
+        BY_LEVEL.remove(level);
+        PENDING.removeIf(be -> be.getLevel() == level);
+    }
+
+    /** 眠っている BE の数（デバッグ用） */
+    public static int getSleepingCount(Level level) {
+        LevelTicks lt = BY_LEVEL.get(level);
+        return lt == null ? 0 : lt.sleeping.size();
+    }
+
+    /**
+     * 呼び出し元（プラットフォーム互換初期化）からレベルごとに毎 tick 呼ぶ。
+     * 1) ネットワーク相: SmartNetworkManager.serverTick(level)（再構築は予算内、配分は毎 tick）
+     * 2) クリティカルな BE を全件 tick
+     * 3) 後回し可能な BE を予算内でラウンドロビン tick（続きは次 tick）
+     */
+    public static void tickLevel(Level level) {
+        if (level == null || level.isClientSide) return;
+        if (level.getServer() != null) TickBudget.beginTick(level.getServer().getTickCount());
+        drainPending();
+
+        try {
+            SmartNetworkManager.get().serverTick(level);
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+
+        LevelTicks lt = BY_LEVEL.get(level);
+        if (lt == null) return;
+        long now = level.getGameTime();
+        for (TickList list : lt.critical) {
+            list.compact();
+            list.tickFrom(0, false, level, now);
+        }
+        lt.tickDeferred(level, now);
+    }
+
+    /** 登録済み（振り分け済み）の tickable 数。デバッグ用 */
+    public static int size() {
+        int n = 0;
+        for (LevelTicks lt : BY_LEVEL.values()) {
+            for (TickList list : lt.byType.values()) n += list.size;
+        }
+        return n;
+    }
+
+    /** 後回し可能な BE が 1 周するのにかかった最大 tick 数（1 なら毎 tick 全件回っている） */
+    public static long getMaxStarvationTicks(Level level) {
+        LevelTicks lt = BY_LEVEL.get(level);
+        return lt == null ? 0L : lt.maxPassTicks;
+    }
+
+    /** 直近に完了した 1 周の tick 数 */
+    public static long getLastPassTicks(Level level) {
+        LevelTicks lt = BY_LEVEL.get(level);
+        return lt == null ? 0L : lt.lastPassTicks;
+    }
+
+    /** 予算切れで次 tick に持ち越した回数 */
+    public static long getCarryOverCount(Level level) {
+        LevelTicks lt = BY_LEVEL.get(level);
+        return lt == null ? 0L : lt.carryOvers;
+    }
+
+    // PENDING を level / 型ごとの TickList に振り分ける
+    private static void drainPending() {
+        int n = PENDING.size();
+        for (int i = 0; i < n; i++) {
+            BlockEntity be = PENDING.poll();
+            if (be == null) break;
+            if (be.isRemoved()) continue;
+            Level level = be.getLevel();
+            if (level == null) {
+                // ワールドに置かれていない（作って捨てられた BE 等）。積み直さずに捨てる。置かれれば onLoad で登録し直される
+                continue;
+            }
+            if (level.isClientSide) continue;
+            BY_LEVEL.computeIfAbsent(level, k -> new LevelTicks()).add((IServerTickable) be);
+        }
+    }
+
+    /**
+     * level 単位の tick 対象。
+     * - critical: 毎 tick 全件
+     * - deferred: 予算内でラウンドロビン。cursorList/cursorIndex が次 tick の再開位置
+     */
+    static final class LevelTicks {
+        final Map<Class<?>, TickList> byType = new HashMap<>();
+        final List<TickList> critical = new ArrayList<>();
+        final List<TickList> deferred = new ArrayList<>();
+        // 稼働集合から外れている（イベント待ち）もの
+        final Set<IServerTickable> sleeping = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        int cursorList = 0;
+        int cursorIndex = 0;
+        long passStartTick = -1;
+        long lastPassTicks = 0;
+        long maxPassTicks = 0;
+        long carryOvers = 0;
+
+        void add(IServerTickable t) {
+            TickList list = byType.get(t.getClass());
+            if (list == null) {
+                list = new TickList(t.supportsCatchUp());
+                byType.put(t.getClass(), list);
+                // 型単位で分類（実装はクラスごとに定数を返す前提）
+                (t.isDeferrable() ? deferred : critical).add(list);
+            }
+            list.add(t);
+        }
+
+        void tickDeferred(Level level, long now) {
+            if (deferred.isEmpty()) return;
+            if (passStartTick < 0) passStartTick = now;
+
+            while (cursorList < deferred.size()) {
+                TickList list = deferred.get(cursorList);
+                if (cursorIndex == 0) list.compact();
+                int next = list.tickFrom(cursorIndex, true, level, now);
+                if (next < list.size) {
+                    // 予算切れ: 続きは次 tick
+                    cursorIndex = next;
+                    carryOvers++;
+                    return;
+                }
+                cursorList++;
+                cursorIndex = 0;
+                if (cursorList < deferred.size() && !TickBudget.hasTimeLeft()) {
+                    carryOvers++;
+                    return;
+                }
+            }
+
+            // 1 周完了
+            lastPassTicks = now - passStartTick + 1;
+            maxPassTicks = Math.max(maxPassTicks, lastPassTicks);
+            passStartTick = -1;
+            cursorList = 0;
+            cursorIndex = 0;
+        }
     }
 
     /**
-     * 呼び出し元（プラットフォーム互換初期化）から server を渡して呼ぶ。
-     * ここでは Client/Server 判定を行わず、各 BE の serverTick() を呼ぶ形にしている。
+     * 同一具象型の tickable を配列で保持するリスト。
+     * - remove() は印を付けるだけ。走査時はスキップし、compact() で実際に詰める
+     * - compact() は 1 周の先頭（カーソル 0）でのみ呼ぶので、走査途中の添字はずれない
+     * - catchUp 型は要素ごとに間引き間隔（intervals）と次回 tier 見直し時刻を並列配列で持つ
      */
-    public static void tickAll() {
-        for (BlockEntity be : TICKABLES) {
-            try {
-                if (be == null) continue;
-                // 各 BE に serverTick メソッドを実装しておくこと（本実装の BE は実装済）
-                if (be instanceof net.minecraft.world.level.block.entity.BlockEntity) {
-                    // Reflection-less dispatch by instanceof checks in concrete classes (they provide serverTick())
-                    // We'll do safe casts to known types in their classes' serverTick methods.
-                    // Just attempt to call known method via interface - but we didn't define an interface here to keep it simple.
-                    // Concrete BE classes in this project implement serverTick() as a public method.
-                    try {
-                        // If class has public serverTick(), invoke it:
-                        be.getClass().getMethod("serverTick").invoke(be);
-                    } catch (NoSuchMethodException ignore) {
-                        // no serverTick - skip
+    static final class TickList {
+        private final boolean catchUp;
+        private IServerTickable[] items = new IServerTickable[16];
+        private int[] intervals = new int[16];
+        private long[] nextTierCheck = new long[16];
+        private long[] lastRun = new long[16];
+        private int size = 0;
+        private final Set<IServerTickable> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        TickList(boolean catchUp) {
+            this.catchUp = catchUp;
+        }
+
+        void add(IServerTickable t) {
+            // まだ compact 前なら配列に残っているので印を外すだけでよい
+            if (removed.remove(t)) return;
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                intervals = Arrays.copyOf(intervals, size * 2);
+                nextTierCheck = Arrays.copyOf(nextTierCheck, size * 2);
+                lastRun = Arrays.copyOf(lastRun, size * 2);
+            }
+            items[size] = t;
+            intervals[size] = INTERVAL_FULL;
+            nextTierCheck[size] = Long.MIN_VALUE;
+            lastRun[size] = Long.MIN_VALUE;
+            size++;
+        }
+
+        void remove(IServerTickable t) {
+            removed.add(t);
+        }
+
+        void compact() {
+            int w = 0;
+            for (int r = 0; r < size; r++) {
+                IServerTickable t = items[r];
+                if (!removed.isEmpty() && removed.contains(t)) continue;
+                if (((BlockEntity) t).isRemoved()) continue;
+                items[w] = t;
+                intervals[w] = intervals[r];
+                nextTierCheck[w] = nextTierCheck[r];
+                lastRun[w] = lastRun[r];
+                w++;
+            }
+            for (int i = w; i < size; i++) items[i] = null;
+            size = w;
+            removed.clear();
+        }
+
+        /** from から tick し、次に回すべき添字を返す（size なら末尾まで完了） */
+        int tickFrom(int from, boolean budgeted, Level level, long now) {
+            int i = from;
+            // 飛ばした要素（眠り・撤去・距離 tier の間引き）も数える。実行した分だけ数えると、
+            // 遠距離 tier で大半を飛ばすときに締め切りの確認がまばらになって予算を超える
+            int sinceCheck = 0;
+            while (i < size) {
+                if (budgeted && ++sinceCheck >= BUDGET_CHECK_INTERVAL) {
+                    sinceCheck = 0;
+                    if (!TickBudget.hasTimeLeft()) break;
+                }
+                int idx = i++;
+                IServerTickable t = items[idx];
+                if (!removed.isEmpty() && removed.contains(t)) continue;
+                BlockEntity be = (BlockEntity) t;
+                if (be.isRemoved()) continue;
+                if (catchUp) {
+                    if (now >= nextTierCheck[idx]) {
+                        int interval = intervalFor(level, be);
+                        if (interval != intervals[idx] && lastRun[idx] == Long.MIN_VALUE) {
+                            // 初回は位置で位相をずらして、同じ tier の BE が同じ tick に集中しないようにする
+                            lastRun[idx] = now - Math.floorMod(be.getBlockPos().hashCode(), interval);
+                        }
+                        intervals[idx] = interval;
+                        nextTierCheck[idx] = now + TIER_RECHECK_TICKS + Math.floorMod(be.getBlockPos().hashCode(), TIER_RECHECK_TICKS);
                     }
+                    // 前回実行から interval tick 経っていなければ飛ばす（持ち越しで遅れても取りこぼさない）
+                    if (lastRun[idx] != Long.MIN_VALUE && now - lastRun[idx] < intervals[idx]) continue;
+                    lastRun[idx] = now;
+                }
+                try {
+                    t.serverTick();
+                } catch (Throwable ex) {
+                    ex.printStackTrace();
                 }
-            } catch (Throwable t) {
-                t.printStackTrace();
             }
+            return i;
+        }
+    }
+
+    // 最寄りプレイヤーまでの距離から間引き間隔を決める
+    private static int intervalFor(Level level, BlockEntity be) {
+        double x = be.getBlockPos().getX() + 0.5;
+        double y = be.getBlockPos().getY() + 0.5;
+        double z = be.getBlockPos().getZ() + 0.5;
+        double best = Double.MAX_VALUE;
+        for (var player : level.players()) {
+            double d = player.distanceToSqr(x, y, z);
+            if (d < best) best = d;
         }
+        if (best <= FULL_RATE_DIST_SQ) return INTERVAL_FULL;
+        if (best <= QUARTER_RATE_DIST_SQ) return INTERVAL_QUARTER;
+        return INTERVAL_SLOW;
     }
 }
@@ -0,0 +1,140 @@
+package com.infinitymax.industry.energy;
+
+import com.infinitymax.industry.network.NetworkTestSupport;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ElectricNetwork の定常 tick が確保なしで回ることの確認
+ *
+ * 電源 2 台（NORMAL / 高コストの DUMP）・負荷 2 台（CRITICAL / NORMAL）をケーブルの分岐でつなぎ、
+ * 十分に回して温めてから、N tick の間にこのスレッドが確保したバイト数が 0 であることを見る
+ */
+class ElectricNetworkAllocationTest {
+
+    private static final int WARMUP_TICKS = 20_000;
+    private static final int MEASURED_TICKS = 2_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void proportionalTickDoesNotAllocate() {
+        // 容量変化を報告しないノード: 毎 tick 読み直して配り直す（定常キャッシュを使わない経路）
+        Circuit c = new Circuit(false);
+        assertSteadyStateAllocationFree(c);
+        assertEquals(0L, c.network.getSteadyStateStats()[1]);
+    }
+
+    @Test
+    void nodalSolverTickDoesNotAllocate() {
+        boolean prev = ElectricNetwork.isNodalSolver();
+        ElectricNetwork.setNodalSolver(true);
+        try {
+            assertSteadyStateAllocationFree(new Circuit(false));
+        } finally {
+            ElectricNetwork.setNodalSolver(prev);
+        }
+    }
+
+    @Test
+    void steadyStateCacheTickDoesNotAllocate() {
+        // 全ノードが容量変化を報告する: 前 tick の配分を使い回す経路
+        Circuit c = new Circuit(true);
+        assertSteadyStateAllocationFree(c);
+        assertTrue(c.network.getSteadyStateStats()[1] > 0L);
+    }
+
+    private static void assertSteadyStateAllocationFree(Circuit c) {
+        Runnable tick = c::tick;
+        for (int i = 0; i < WARMUP_TICKS; i++) tick.run();
+        assertTrue(c.critical.lastA > 0.0, "the network must actually deliver current");
+        long bytes = NetworkTestSupport.allocatedBytes(tick, MEASURED_TICKS, ROUNDS);
+        assertEquals(0L, bytes, "bytes allocated over " + MEASURED_TICKS + " steady-state ticks");
+    }
+
+    /**
+     * (0,64,0) 電源 - ケーブル x=1..6 - (7,64,0) CRITICAL 負荷
+     * (0,64,1) 高コスト電源（電源同士は隣接でつながる）
+     * x=3 の分岐: ケーブル (3,64,1) (3,64,2) - (3,64,3) NORMAL 負荷
+     */
+    private static final class Circuit {
+        final ElectricNetwork network;
+        final Level level;
+        final Node critical;
+
+        Circuit(boolean tracked) {
+            List<BlockEntity> bes = new ArrayList<>();
+            bes.add(Node.source(new BlockPos(0, 64, 0), 100.0, PowerPriority.NORMAL, tracked));
+            bes.add(Node.source(new BlockPos(0, 64, 1), 40.0, PowerPriority.DUMP, tracked));
+            for (int x = 1; x <= 6; x++) bes.add(Node.cable(new BlockPos(x, 64, 0), tracked));
+            bes.add(Node.cable(new BlockPos(3, 64, 1), tracked));
+            bes.add(Node.cable(new BlockPos(3, 64, 2), tracked));
+            critical = Node.load(new BlockPos(7, 64, 0), 60.0, PowerPriority.CRITICAL, tracked);
+            bes.add(critical);
+            bes.add(Node.load(new BlockPos(3, 64, 3), 80.0, PowerPriority.NORMAL, tracked));
+            Set<BlockPos> positions = new HashSet<>();
+            for (BlockEntity be : bes) positions.add(be.getBlockPos());
+            level = NetworkTestSupport.world(bes);
+            network = new ElectricNetwork(positions);
+        }
+
+        void tick() {
+            network.tick(level);
+        }
+    }
+
+    /** 定格だけを持つノード（配られた電流は覚えるだけで、状態は変わらない） */
+    private static final class Node extends BlockEntity implements IElectricNode {
+        private final double outA;
+        private final double inA;
+        private final boolean conductor;
+        private final PowerPriority priority;
+        private final boolean tracked;
+        double lastA;
+
+        private Node(BlockPos pos, double outA, double inA, boolean conductor, PowerPriority priority, boolean tracked) {
+            super(NetworkTestSupport.TYPE, pos, NetworkTestSupport.STATE);
+            this.outA = outA;
+            this.inA = inA;
+            this.conductor = conductor;
+            this.priority = priority;
+            this.tracked = tracked;
+        }
+
+        static Node source(BlockPos pos, double outA, PowerPriority priority, boolean tracked) {
+            return new Node(pos, outA, 0.0, false, priority, tracked);
+        }
+
+        static Node load(BlockPos pos, double inA, PowerPriority priority, boolean tracked) {
+            return new Node(pos, 0.0, inA, false, priority, tracked);
+        }
+
+        static Node cable(BlockPos pos, boolean tracked) {
+            return new Node(pos, 0.0, 1000.0, true, PowerPriority.NORMAL, tracked);
+        }
+
+        @Override public double getVoltageV() { return outA > 0.0 ? 240.0 : 0.0; }
+        @Override public double getInternalResistanceOhm() { return conductor ? 0.01 : 0.1; }
+        @Override public double getMaxIntakeA() { return inA; }
+        @Override public double getMaxOutputA() { return outA; }
+        @Override public boolean isConductor() { return conductor; }
+        @Override public PowerPriority getPowerPriority() { return priority; }
+        @Override public boolean reportsCapacityChanges() { return tracked; }
+        @Override public void markDirtyGraph() {}
+
+        @Override
+        public double pushPullCurrent(Level level, BlockPos pos, double requestedVoltageV, double requestedCurrentA) {
+            lastA = requestedCurrentA;
+            return requestedCurrentA;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.infinitymax.industry.fluid;
+
+import com.infinitymax.industry.network.NetworkTestSupport;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FluidNetwork の定常 tick が確保なしで回ることの確認
+ *
+ * 満杯のタンク 1 基から配管の分岐で空のタンク 2 基へ送る。十分に回して温めてから、
+ * N tick の間にこのスレッドが確保したバイト数が 0 であることを見る（比例配分・圧力ソルバの両方）
+ */
+class FluidNetworkAllocationTest {
+
+    private static final int WARMUP_TICKS = 20_000;
+    private static final int MEASURED_TICKS = 2_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void proportionalTickDoesNotAllocate() {
+        boolean prev = FluidNetwork.isPressureSolver();
+        FluidNetwork.setPressureSolver(false);
+        try {
+            assertSteadyStateAllocationFree(new Plant());
+        } finally {
+            FluidNetwork.setPressureSolver(prev);
+        }
+    }
+
+    @Test
+    void pressureSolverTickDoesNotAllocate() {
+        boolean prev = FluidNetwork.isPressureSolver();
+        FluidNetwork.setPressureSolver(true);
+        try {
+            assertSteadyStateAllocationFree(new Plant());
+        } finally {
+            FluidNetwork.setPressureSolver(prev);
+        }
+    }
+
+    private static void assertSteadyStateAllocationFree(Plant p) {
+        Runnable tick = p::tick;
+        for (int i = 0; i < WARMUP_TICKS; i++) tick.run();
+        assertTrue(p.sink.lastmB > 0, "the network must actually move fluid");
+        long bytes = NetworkTestSupport.allocatedBytes(tick, MEASURED_TICKS, ROUNDS);
+        assertEquals(0L, bytes, "bytes allocated over " + MEASURED_TICKS + " steady-state ticks");
+    }
+
+    /**
+     * (0,64,0) 満杯のタンク - 配管 x=1..6 - (7,64,0) 空のタンク
+     * x=3 の分岐: 配管 (3,64,1) (3,64,2) - (3,64,3) 空のタンク
+     */
+    private static final class Plant {
+        final FluidNetwork network;
+        final Level level;
+        final Node sink;
+
+        Plant() {
+            List<BlockEntity> bes = new ArrayList<>();
+            bes.add(Node.tank(new BlockPos(0, 64, 0), 16000, 400.0));
+            for (int x = 1; x <= 6; x++) bes.add(Node.pipe(new BlockPos(x, 64, 0)));
+            bes.add(Node.pipe(new BlockPos(3, 64, 1)));
+            bes.add(Node.pipe(new BlockPos(3, 64, 2)));
+            sink = Node.tank(new BlockPos(7, 64, 0), 0, 101.3);
+            bes.add(sink);
+            bes.add(Node.tank(new BlockPos(3, 64, 3), 0, 101.3));
+            Set<BlockPos> positions = new HashSet<>();
+            for (BlockEntity be : bes) positions.add(be.getBlockPos());
+            level = NetworkTestSupport.world(bes);
+            network = new FluidNetwork(positions);
+        }
+
+        void tick() {
+            network.tick(level);
+        }
+    }
+
+    /** 量と圧力が一定のノード（流された量は覚えるだけで、中身は変わらない） */
+    private static final class Node extends BlockEntity implements IPressureNode {
+        private final int amountmB;
+        private final double pressureKPa;
+        private final boolean conductor;
+        int lastmB;
+
+        private Node(BlockPos pos, int amountmB, double pressureKPa, boolean conductor) {
+            super(NetworkTestSupport.TYPE, pos, NetworkTestSupport.STATE);
+            this.amountmB = amountmB;
+            this.pressureKPa = pressureKPa;
+            this.conductor = conductor;
+        }
+
+        static Node tank(BlockPos pos, int amountmB, double pressureKPa) {
+            return new Node(pos, amountmB, pressureKPa, false);
+        }
+
+        static Node pipe(BlockPos pos) {
+            return new Node(pos, 0, 101.3, true);
+        }
+
+        @Override public double getPressureKPa() { return pressureKPa; }
+        @Override public int getCapacitymB() { return 16000; }
+        @Override public int getAmountmB() { return amountmB; }
+        @Override public Medium getMedium() { return Medium.WATER; }
+        @Override public int getMaxFlowIntakePerTick() { return 200; }
+        @Override public int getMaxFlowOutputPerTick() { return 200; }
+        @Override public boolean isConductor() { return conductor; }
+        @Override public void markDirtyGraph() {}
+
+        @Override
+        public int flow(Level level, BlockPos pos, int requestedmB) {
+            if (requestedmB > 0) lastmB = requestedmB;
+            return requestedmB;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.infinitymax.industry.network;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.entity.BlockEntityType;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ネットワーク計算のテスト用の足場
+ *
+ * - world(): 座標 -> BE の表だけを返す Level（isLoaded は常に true）。ネットワークが level に触るのは resolve だけ
+ * - TYPE / STATE: テスト用 BE のコンストラクタに渡すだけの型と状態
+ * - allocatedBytes(): このスレッドが ticks 回の tick で確保したバイト数（ThreadMXBean）
+ */
+public final class NetworkTestSupport {
+
+    @SuppressWarnings("unchecked")
+    public static final BlockEntityType<BlockEntity> TYPE = mock(BlockEntityType.class);
+    public static final BlockState STATE = mock(BlockState.class);
+
+    static {
+        when(TYPE.isValid(any())).thenReturn(true);
+    }
+
+    private NetworkTestSupport() {}
+
+    /** 置いた BE だけがある Level */
+    public static Level world(Iterable<? extends BlockEntity> blockEntities) {
+        Map<BlockPos, BlockEntity> map = new HashMap<>();
+        for (BlockEntity be : blockEntities) map.put(be.getBlockPos(), be);
+        Level level = mock(Level.class);
+        when(level.isLoaded(any(BlockPos.class))).thenReturn(true);
+        // 引数は MutableBlockPos のことがある（座標で引けるように immutable にする）
+        when(level.getBlockEntity(any(BlockPos.class))).thenAnswer(inv -> map.get(inv.<BlockPos>getArgument(0).immutable()));
+        return level;
+    }
+
+    /**
+     * tick を ticks 回回したときにこのスレッドが確保したバイト数。rounds 回測って最小を返す
+     * （JIT の脱最適化など、たまに起きる 1 回きりの確保で落ちないように。毎 tick の確保は最小にも残る）
+     */
+    public static long allocatedBytes(Runnable tick, int ticks, int rounds) {
+        com.sun.management.ThreadMXBean mx = threadMXBean();
+        long min = Long.MAX_VALUE;
+        for (int r = 0; r < rounds; r++) {
+            long overhead = mx.getCurrentThreadAllocatedBytes();
+            overhead = mx.getCurrentThreadAllocatedBytes() - overhead;
+            long before = mx.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ticks; i++) tick.run();
+            long bytes = mx.getCurrentThreadAllocatedBytes() - before - overhead;
+            min = Math.min(min, Math.max(0L, bytes));
+        }
+        return min;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "com.sun.management.ThreadMXBean is not available");
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(mx.isThreadAllocatedMemorySupported(), "thread allocation measurement is not supported");
+        if (!mx.isThreadAllocatedMemoryEnabled()) mx.setThreadAllocatedMemoryEnabled(true);
+        return mx;
+    }
+}